@@ -0,0 +1,312 @@
+package com.example.formlix.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the Hugging Face router: an OpenAI-compatible {@code /v1/chat/completions}
+ * endpoint answering both plain and {@code "stream": true} (SSE) requests, so the generation
+ * path can be load-tested with no network and no API key spend.
+ * <p>
+ * Replies are sized from the prompt's "approximately N characters" line (report or section
+ * prompt, see {@link BenchmarkReports}); {@code --chars} is used when a prompt has none.
+ * Latency before the first byte is drawn from {@code --latency}:
+ * <ul>
+ *     <li>{@code fixed:2000}</li>
+ *     <li>{@code uniform:500-3000}</li>
+ *     <li>{@code exp:1500} (exponential with that mean)</li>
+ *     <li>{@code lognormal:1500,0.6} (median and sigma, a long-tailed model latency)</li>
+ * </ul>
+ * {@code --error-rate 0.05 --error-codes 429,503} fails that share of requests with one of the
+ * codes (429 carries {@code Retry-After: 1}). Streams send {@code --chunk-chars} per event every
+ * {@code --chunk-interval-ms}. Point the application at it with {@code AI_API_URL}:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.mainClass=com.example.formlix.service.AIStubServer \
+ *     -Dexec.args="--port 8089 --latency lognormal:2000,0.5 --error-rate 0.02"
+ * AI_API_URL=http://127.0.0.1:8089/v1/chat/completions HUGGINGFACE_API_KEY=stub ./mvnw spring-boot:run
+ * </pre>
+ */
+public final class AIStubServer {
+
+    private static final Pattern TARGET_CHARACTERS = Pattern.compile("approximately (\\d+) characters");
+    private static final Pattern SECTION_TITLE = Pattern.compile("Start DIRECTLY with '## ([^']+)'");
+    private static final int CHARACTERS_PER_TOKEN = 4;
+    private static final int CHARACTERS_PER_PAGE = 3500;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Latency latency;
+    private final double errorRate;
+    private final int[] errorCodes;
+    private final int defaultCharacters;
+    private final int chunkCharacters;
+    private final long chunkIntervalMs;
+
+    // ✅ Generated replies by (section title, size); the same prompt always gets the same text
+    private final Map<String, String> replies = new ConcurrentHashMap<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private AIStubServer(Map<String, String> options) throws IOException {
+        this.latency = Latency.parse(options.getOrDefault("latency", "fixed:2000"));
+        this.errorRate = Double.parseDouble(options.getOrDefault("error-rate", "0"));
+        this.errorCodes = parseCodes(options.getOrDefault("error-codes", "429,503"));
+        this.defaultCharacters = Integer.parseInt(options.getOrDefault("chars", "2000"));
+        this.chunkCharacters = Math.max(1, Integer.parseInt(options.getOrDefault("chunk-chars", "64")));
+        this.chunkIntervalMs = Long.parseLong(options.getOrDefault("chunk-interval-ms", "5"));
+
+        int port = Integer.parseInt(options.getOrDefault("port", "0"));
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 8192);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", this::handle);
+    }
+
+    /**
+     * Starts a stub with the given {@code --option value} pairs (all optional); {@code port} 0 picks a free port.
+     */
+    public static AIStubServer start(Map<String, String> options) throws IOException {
+        AIStubServer stub = new AIStubServer(options);
+        stub.server.start();
+        return stub;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        options.putIfAbsent("port", "8089");
+        AIStubServer stub = start(options);
+        System.out.println("🧪 AI stub listening on " + stub.url() + " (latency " + stub.latency
+                + ", error rate " + stub.errorRate + ")");
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::stop));
+
+        // ✅ A status line every 10 s while it runs
+        long lastRequests = 0;
+        while (true) {
+            Thread.sleep(10_000);
+            long total = stub.requests.get();
+            System.out.printf("🧪 %d requests (%.1f/s), %d errors, %d in flight, peak %d%n",
+                    total, (total - lastRequests) / 10.0, stub.errors.get(), stub.inFlight.get(), stub.peakInFlight.get());
+            lastRequests = total;
+        }
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions";
+    }
+
+    /**
+     * Highest number of concurrent requests since the last call.
+     */
+    public int takePeakInFlight() {
+        return peakInFlight.getAndSet(inFlight.get());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        requests.incrementAndGet();
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JSONObject request = new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            String prompt = request.getJSONArray("messages").getJSONObject(0).getString("content");
+            boolean stream = request.optBoolean("stream", false);
+            boolean includeUsage = request.has("stream_options")
+                    && request.getJSONObject("stream_options").optBoolean("include_usage", false);
+            String model = request.optString("model", "stub");
+
+            Thread.sleep(latency.sampleMillis());
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (errorRate > 0 && random.nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                sendError(exchange, errorCodes[random.nextInt(errorCodes.length)]);
+                return;
+            }
+
+            String content = replyFor(prompt);
+            int promptTokens = prompt.length() / CHARACTERS_PER_TOKEN;
+            int completionTokens = content.length() / CHARACTERS_PER_TOKEN;
+            if (stream) {
+                sendStream(exchange, model, content, includeUsage, promptTokens, completionTokens);
+            } else {
+                sendCompletion(exchange, model, content, promptTokens, completionTokens);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // ✅ Client went away mid-response (timeouts, cancelled streams)
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private String replyFor(String prompt) {
+        Matcher target = TARGET_CHARACTERS.matcher(prompt);
+        int characters = target.find() ? Integer.parseInt(target.group(1)) : defaultCharacters;
+        Matcher section = SECTION_TITLE.matcher(prompt);
+        String title = section.find() ? section.group(1) : null;
+
+        return replies.computeIfAbsent(title + "\n" + characters, key -> title != null
+                ? BenchmarkReports.aiSection(title, characters)
+                : BenchmarkReports.aiResponse(Math.max(1, (characters + CHARACTERS_PER_PAGE - 1) / CHARACTERS_PER_PAGE)));
+    }
+
+    private static void sendCompletion(HttpExchange exchange, String model, String content,
+                                       int promptTokens, int completionTokens) throws IOException {
+        byte[] body = new JSONObject()
+                .put("object", "chat.completion")
+                .put("model", model)
+                .put("choices", new JSONArray().put(new JSONObject()
+                        .put("index", 0)
+                        .put("message", new JSONObject().put("role", "assistant").put("content", content))
+                        .put("finish_reason", "stop")))
+                .put("usage", usage(promptTokens, completionTokens))
+                .toString().getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private void sendStream(HttpExchange exchange, String model, String content, boolean includeUsage,
+                            int promptTokens, int completionTokens) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().add("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        OutputStream out = exchange.getResponseBody();
+        for (int start = 0; start < content.length(); start += chunkCharacters) {
+            String delta = content.substring(start, Math.min(content.length(), start + chunkCharacters));
+            sendEvent(out, chunk(model, new JSONObject().put("content", delta), null));
+            if (chunkIntervalMs > 0) {
+                Thread.sleep(chunkIntervalMs);
+            }
+        }
+        sendEvent(out, chunk(model, new JSONObject(), "stop"));
+        if (includeUsage) {
+            sendEvent(out, new JSONObject()
+                    .put("object", "chat.completion.chunk")
+                    .put("model", model)
+                    .put("choices", new JSONArray())
+                    .put("usage", usage(promptTokens, completionTokens))
+                    .toString());
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static String chunk(String model, JSONObject delta, String finishReason) {
+        return new JSONObject()
+                .put("object", "chat.completion.chunk")
+                .put("model", model)
+                .put("choices", new JSONArray().put(new JSONObject()
+                        .put("index", 0)
+                        .put("delta", delta)
+                        .put("finish_reason", finishReason != null ? finishReason : JSONObject.NULL)))
+                .toString();
+    }
+
+    private static void sendEvent(OutputStream out, String json) throws IOException {
+        out.write(("data: " + json + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static JSONObject usage(int promptTokens, int completionTokens) {
+        return new JSONObject()
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+    }
+
+    private static void sendError(HttpExchange exchange, int code) throws IOException {
+        byte[] body = new JSONObject()
+                .put("error", new JSONObject().put("message", "Stubbed failure").put("code", code))
+                .toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        if (code == 429) {
+            exchange.getResponseHeaders().add("Retry-After", "1");
+        }
+        exchange.sendResponseHeaders(code, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static int[] parseCodes(String codes) {
+        return List.of(codes.split(",")).stream().map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    /**
+     * Time to first byte of a reply, in milliseconds.
+     */
+    private record Latency(String kind, double a, double b) {
+
+        static Latency parse(String spec) {
+            String[] parts = spec.split(":", 2);
+            String kind = parts[0];
+            String[] values = parts.length > 1 ? parts[1].split("[-,]") : new String[]{"0"};
+            double a = Double.parseDouble(values[0]);
+            double b = values.length > 1 ? Double.parseDouble(values[1]) : 0;
+            return switch (kind) {
+                case "fixed", "exp" -> new Latency(kind, a, 0);
+                case "uniform", "lognormal" -> new Latency(kind, a, b);
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            };
+        }
+
+        long sampleMillis() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double millis = switch (kind) {
+                case "uniform" -> a + random.nextDouble() * (b - a);
+                case "exp" -> -a * Math.log(1 - random.nextDouble());
+                case "lognormal" -> a * Math.exp(b * random.nextGaussian());
+                default -> a;
+            };
+            return Math.max(0, Math.round(millis));
+        }
+
+        @Override
+        public String toString() {
+            return switch (kind) {
+                case "uniform" -> "uniform " + (long) a + "-" + (long) b + " ms";
+                case "lognormal" -> "lognormal median " + (long) a + " ms, sigma " + b;
+                case "exp" -> "exponential mean " + (long) a + " ms";
+                default -> "fixed " + (long) a + " ms";
+            };
+        }
+    }
+}
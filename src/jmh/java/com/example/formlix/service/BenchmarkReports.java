@@ -0,0 +1,97 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.ReportOutline;
+
+import java.util.Random;
+
+/**
+ * Builds AI-style report text of a given page count for the benchmarks.
+ * <p>
+ * Mirrors what the model actually returns: meta-text up front, {@code ## / ###} headings,
+ * {@code **bold**} runs, stray {@code Page N} lines, image markers and a numbered reference
+ * list. Uses a fixed seed so every run benchmarks the same input.
+ */
+final class BenchmarkReports {
+
+    static final String TOPIC = "Artificial Intelligence in Healthcare";
+
+    // ✅ Same budget ReportGenerator uses per page
+    private static final int CHARS_PER_PAGE = 3500;
+
+    private static final String[] SENTENCES = {
+            "Artificial intelligence systems are increasingly used to support clinical decision making.",
+            "The **adoption** of machine learning models depends on data quality and governance.",
+            "Several studies report measurable improvements in diagnostic accuracy and turnaround time.",
+            "Regulatory frameworks continue to evolve as new use cases reach production environments.",
+            "Hospitals face integration challenges with legacy record systems and fragmented workflows.",
+            "Explainability remains a *key* requirement for clinicians who must justify their decisions.",
+            "Costs fall over time as infrastructure is shared across departments and institutions.",
+            "Bias in training data can lead to unequal outcomes across patient populations."
+    };
+
+    private BenchmarkReports() {
+    }
+
+    static String aiResponse(int pages) {
+        Random random = new Random(42L + pages);
+        int target = pages * CHARS_PER_PAGE;
+        StringBuilder out = new StringBuilder(target + 4096);
+
+        out.append("Here is the report:\n\n");
+        out.append("## Introduction\n\n");
+        appendParagraph(out, random);
+
+        int section = 1;
+        while (out.length() < target) {
+            out.append("## Section ").append(section).append(": Analysis\n\n");
+            out.append("### Background\n\n");
+            appendParagraph(out, random);
+            out.append("\n\nPage ").append(section + 1).append("\n\n\n");
+            out.append("### Findings\n\n");
+            appendParagraph(out, random);
+            if (section % 3 == 0) {
+                out.append("\n\nThis chart illustrates the trend [IMAGE: adoption over time]\n\n");
+            }
+            appendParagraph(out, random);
+            out.append("\n\n\n\n");
+            section++;
+        }
+
+        out.append("## Conclusion\n\n");
+        appendParagraph(out, random);
+        out.append("\n\n## References\n\n");
+        for (int i = 1; i <= 10; i++) {
+            out.append(i).append(". Author, A. (2024). Study number ").append(i).append(". Journal of Medicine.\n");
+        }
+        return out.toString();
+    }
+
+    // ✅ One section, the way the section-by-section prompts get it back
+    static String aiSection(String title, int characters) {
+        Random random = new Random(42L + characters);
+        StringBuilder out = new StringBuilder(characters + 1024);
+        out.append("## ").append(title).append("\n\n");
+        int part = 1;
+        while (out.length() < characters) {
+            out.append("### Part ").append(part++).append("\n\n");
+            appendParagraph(out, random);
+            appendParagraph(out, random);
+        }
+        return out.toString();
+    }
+
+    // ✅ The outline the renderers see: cleaned, cut to the page limit, then parsed
+    static ReportOutline outline(int pages) {
+        String content = ReportContentCleaner.clean(aiResponse(pages));
+        return ReportContentParser.parse(ReportGenerator.adjustContentForPageLimit(content, pages));
+    }
+
+    private static void appendParagraph(StringBuilder out, Random random) {
+        int sentences = 4 + random.nextInt(4);
+        for (int i = 0; i < sentences; i++) {
+            if (i > 0) out.append(' ');
+            out.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+        }
+        out.append("\n\n");
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.formlix.service;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Previous {@code body().string()} + {@code org.json} tree vs {@link ChatCompletionDecoder}
+ * reading the response bytes, on chat completion bodies of 1 to 20 pages. Run with
+ * {@code -prof gc} (the profile's default) to compare allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatCompletionDecoderBenchmark {
+
+    @Param({"1", "5", "20"})
+    private int pages;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        body = new JSONObject()
+                .put("id", "chatcmpl-benchmark")
+                .put("object", "chat.completion")
+                .put("model", "meta-llama/Llama-3.2-3B-Instruct")
+                .put("choices", new JSONArray().put(new JSONObject()
+                        .put("index", 0)
+                        .put("message", new JSONObject().put("role", "assistant")
+                                .put("content", BenchmarkReports.aiResponse(pages)))
+                        .put("finish_reason", "stop")))
+                .put("usage", new JSONObject()
+                        .put("prompt_tokens", 812).put("completion_tokens", 3950).put("total_tokens", 4762))
+                .toString().getBytes(StandardCharsets.UTF_8);
+
+        if (!jsonTree().equals(streamingDecoder())) {
+            throw new IllegalStateException("Decoders disagree");
+        }
+    }
+
+    @Benchmark
+    public String jsonTree() {
+        String responseBody = new String(body, StandardCharsets.UTF_8);
+        return new JSONObject(responseBody).getJSONArray("choices").getJSONObject(0)
+                .getJSONObject("message").getString("content");
+    }
+
+    @Benchmark
+    public String streamingDecoder() throws IOException {
+        return ChatCompletionDecoder.decode(new ByteArrayInputStream(body)).content();
+    }
+}
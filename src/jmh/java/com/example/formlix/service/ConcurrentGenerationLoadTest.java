@@ -0,0 +1,128 @@
+package com.example.formlix.service;
+
+import okhttp3.*;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * How many report generations one instance holds at once, on platform vs virtual threads.
+ * <p>
+ * {@link AIStubServer} plays the AI endpoint with a fixed delay. Each generation does
+ * what {@code generateFromTopic} does: a blocking OkHttp call, JSON parsing, cleaning, page
+ * limiting, parsing and a streaming DOCX render. {@code platform} runs them on a 200-thread
+ * pool (Tomcat's default {@code server.tomcat.threads.max}); {@code virtual} gives each its own
+ * virtual thread and renders on a per-core platform pool, like {@code reportRenderExecutor}.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.mainClass=com.example.formlix.service.ConcurrentGenerationLoadTest \
+ *     -Dexec.args="--clients 2000 --ai-delay-ms 2000 --pages 5"
+ * </pre>
+ * Add {@code -Djdk.tracePinnedThreads=short} (via {@code MAVEN_OPTS}) to list pinned virtual threads.
+ */
+public final class ConcurrentGenerationLoadTest {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    private ConcurrentGenerationLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = AIStubServer.parseOptions(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "2000"));
+        int aiDelayMs = Integer.parseInt(options.getOrDefault("ai-delay-ms", "2000"));
+        int pages = Integer.parseInt(options.getOrDefault("pages", "5"));
+        List<String> modes = List.of(options.getOrDefault("modes", "platform,virtual").split(","));
+
+        AIStubServer stub = AIStubServer.start(Map.of(
+                "latency", "fixed:" + aiDelayMs,
+                "chars", String.valueOf(pages * 3500)));
+        String url = stub.url();
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .connectTimeout(60, TimeUnit.SECONDS)
+                .readTimeout(120, TimeUnit.SECONDS)
+                .connectionPool(new ConnectionPool(clients, 1, TimeUnit.MINUTES))
+                .build();
+        WordReportRenderer renderer = new WordReportRenderer(new DocxReportTemplate());
+        ExecutorService renderPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        System.out.printf("clients=%d ai-delay=%d ms pages=%d cores=%d%n",
+                clients, aiDelayMs, pages, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%-9s %10s %10s %10s %10s %10s %8s%n",
+                "mode", "peak-ai", "wall-s", "gen/s", "p50-ms", "p99-ms", "errors");
+
+        try {
+            for (String mode : modes) {
+                stub.takePeakInFlight();
+                boolean virtual = mode.equals("virtual");
+                ExecutorService requestThreads = virtual
+                        ? Executors.newVirtualThreadPerTaskExecutor()
+                        : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+
+                long[] latencies = new long[clients];
+                AtomicInteger errors = new AtomicInteger();
+                long start = System.nanoTime();
+                List<Future<?>> futures = new ArrayList<>(clients);
+                for (int i = 0; i < clients; i++) {
+                    int index = i;
+                    long submitted = System.nanoTime();
+                    futures.add(requestThreads.submit(() -> {
+                        try {
+                            generate(client, url, renderer, virtual ? renderPool : null, pages);
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[index] = System.nanoTime() - submitted;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+                double wallSeconds = (System.nanoTime() - start) / 1e9;
+                requestThreads.shutdown();
+
+                Arrays.sort(latencies);
+                System.out.printf("%-9s %10d %10.1f %10.1f %10d %10d %8d%n",
+                        mode, stub.takePeakInFlight(), wallSeconds, clients / wallSeconds,
+                        latencies[clients / 2] / 1_000_000, latencies[(int) (clients * 0.99)] / 1_000_000, errors.get());
+            }
+        } finally {
+            renderPool.shutdown();
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+            stub.stop();
+        }
+    }
+
+    private static void generate(OkHttpClient client, String url, WordReportRenderer renderer,
+                                 ExecutorService renderPool, int pages) throws Exception {
+        JSONObject requestBody = new JSONObject()
+                .put("model", "stub")
+                .put("messages", new JSONArray().put(new JSONObject().put("role", "user").put("content", "topic")));
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(requestBody.toString(), MediaType.get("application/json; charset=utf-8")))
+                .build();
+
+        String content;
+        try (Response response = client.newCall(request).execute()) {
+            content = new JSONObject(response.body().string())
+                    .getJSONArray("choices").getJSONObject(0).getJSONObject("message").getString("content");
+        }
+
+        String cleaned = ReportGenerator.adjustContentForPageLimit(ReportContentCleaner.clean(content), pages);
+        Callable<Void> render = () -> {
+            renderer.render(BenchmarkReports.TOPIC, ReportContentParser.parse(cleaned), OutputStream.nullOutputStream());
+            return null;
+        };
+        if (renderPool != null) {
+            renderPool.submit(render).get();
+        } else {
+            render.call();
+        }
+    }
+}
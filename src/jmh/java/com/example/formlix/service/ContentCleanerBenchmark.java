@@ -0,0 +1,47 @@
+package com.example.formlix.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Original {@code replaceAll} chain vs {@link ReportContentCleaner} on AI responses of
+ * 1 to 20 pages (20 pages is the largest report the API accepts, ~75 KB of text).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContentCleanerBenchmark {
+
+    @Param({"1", "5", "15", "20"})
+    private int pages;
+
+    private String content;
+
+    @Setup
+    public void setUp() {
+        content = BenchmarkReports.aiResponse(pages);
+    }
+
+    @Benchmark
+    public String replaceAllChain() {
+        String cleaned = content;
+        cleaned = cleaned.replaceAll("(?i)^.*?Here is the report:?\\s*", "");
+        cleaned = cleaned.replaceAll("(?i)^.*?I can provide.*?report.*?\\s*", "");
+        cleaned = cleaned.replaceAll("(?i)^.*?I'll generate.*?\\s*", "");
+        cleaned = cleaned.replaceAll("(?m)^Page \\d+\\s*$", "");
+        cleaned = cleaned.replaceAll("\\*\\*", "");
+        cleaned = cleaned.replaceAll("\\n{3,}", "\n\n");
+        cleaned = cleaned.replaceAll("\\[IMAGE:.*?\\]", "");
+        cleaned = cleaned.replaceAll(".*?illustrates.*?\\[IMAGE.*", "");
+        return cleaned.trim();
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return ReportContentCleaner.clean(content);
+    }
+}
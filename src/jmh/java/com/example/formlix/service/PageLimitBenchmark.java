@@ -0,0 +1,32 @@
+package com.example.formlix.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ReportGenerator#adjustContentForPageLimit} cutting a 20-page response down to each page limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageLimitBenchmark {
+
+    @Param({"1", "5", "15", "20"})
+    private int pageLimit;
+
+    private String content;
+
+    @Setup
+    public void setUp() {
+        content = ReportContentCleaner.clean(BenchmarkReports.aiResponse(20));
+    }
+
+    @Benchmark
+    public String adjustContentForPageLimit() {
+        return ReportGenerator.adjustContentForPageLimit(content, pageLimit);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.ReportOutline;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@code ReportGenerator.generatePdfReport} does per request, minus the file write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfReportBenchmark {
+
+    @Param({"1", "5", "15", "20"})
+    private int pages;
+
+    private PdfReportRenderer renderer;
+    private ReportOutline outline;
+
+    @Setup
+    public void setUp() {
+        renderer = new PdfReportRenderer();
+        outline = BenchmarkReports.outline(pages);
+    }
+
+    @Benchmark
+    public long generatePdfReport() throws Exception {
+        return renderer.render(BenchmarkReports.TOPIC, outline, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.formlix.service;
+
+import org.json.JSONObject;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load against a running instance: {@code --concurrency} virtual-thread clients
+ * each send one request after another for {@code --duration-s} seconds, picking an endpoint by
+ * the {@code --mix} weights:
+ * <ul>
+ *     <li>{@code generate}: {@code POST /api/reports/generate} over {@code --topics} distinct topics</li>
+ *     <li>{@code download}: {@code GET /api/reports/download/{file}} of a report generated earlier</li>
+ *     <li>{@code stats}: {@code GET /api/stats/all}</li>
+ *     <li>{@code login}: {@code POST /api/user/login}</li>
+ * </ul>
+ * {@code --users} accounts are registered (or logged in) up front and share the load. Requests
+ * during the first {@code --warmup-s} seconds are not counted. Prints throughput and p50/p99/max
+ * latency per endpoint. Pair it with {@link AIStubServer} to measure capacity with no network:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:java -Dexec.mainClass=com.example.formlix.service.ReportLoadGenerator \
+ *     -Dexec.args="--base-url http://localhost:8083 --concurrency 50 --duration-s 120 --mix generate=1,download=4,stats=3,login=2"
+ * </pre>
+ * Add {@code --bypass-cache true} to make every generation call the AI instead of the content cache.
+ */
+public final class ReportLoadGenerator {
+
+    private static final List<String> ENDPOINTS = List.of("generate", "download", "stats", "login");
+    private static final String PASSWORD = "load-test-password";
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final Duration timeout;
+
+    // ✅ Reports generated during the run, for the download requests
+    private final List<String> generatedFiles = new CopyOnWriteArrayList<>();
+
+    private ReportLoadGenerator(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl.replaceAll("/+$", "");
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = AIStubServer.parseOptions(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8083");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "20"));
+        int users = Integer.parseInt(options.getOrDefault("users", "10"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration-s", "60"));
+        int warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-s", "10"));
+        int topics = Integer.parseInt(options.getOrDefault("topics", "10"));
+        int pages = Integer.parseInt(options.getOrDefault("pages", "5"));
+        String format = options.getOrDefault("format", "docx");
+        boolean bypassCache = Boolean.parseBoolean(options.getOrDefault("bypass-cache", "false"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix", "generate=1,download=4,stats=3,login=2"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout-s", "300")));
+
+        ReportLoadGenerator generator = new ReportLoadGenerator(baseUrl, timeout);
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<Account> accounts = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            accounts.add(generator.signIn("loadtest-" + run + "-" + i + "@example.com"));
+        }
+        System.out.printf("base-url=%s concurrency=%d users=%d duration=%d s (+%d s warm-up) topics=%d pages=%d mix=%s%n",
+                baseUrl, concurrency, users, durationSeconds, warmupSeconds, topics, pages, mix);
+
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        ENDPOINTS.forEach(endpoint -> recorders.put(endpoint, new Recorder()));
+
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long deadline = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        AtomicInteger clientIds = new AtomicInteger();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.submit(() -> {
+                    int client = clientIds.getAndIncrement();
+                    Account account = accounts.get(client % accounts.size());
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        String endpoint = pick(mix, random);
+                        if (endpoint.equals("download") && generator.generatedFiles.isEmpty()) {
+                            endpoint = "generate";
+                        }
+                        long start = System.nanoTime();
+                        boolean ok;
+                        try {
+                            ok = switch (endpoint) {
+                                case "generate" -> generator.generate(account,
+                                        "Load test topic " + random.nextInt(topics), format, pages, bypassCache);
+                                case "download" -> generator.download(account,
+                                        generator.generatedFiles.get(random.nextInt(generator.generatedFiles.size())));
+                                case "stats" -> generator.stats();
+                                default -> generator.login(account);
+                            };
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        long end = System.nanoTime();
+                        if (start >= measureFrom && end <= deadline) {
+                            recorders.get(endpoint).record(end - start, ok);
+                        }
+                    }
+                });
+            }
+        }
+
+        System.out.printf("%-9s %9s %8s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50-ms", "p99-ms", "max-ms");
+        long totalRequests = 0;
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Recorder recorder = entry.getValue();
+            long[] latencies = recorder.sorted();
+            totalRequests += latencies.length;
+            if (latencies.length == 0) continue;
+            System.out.printf("%-9s %9d %8d %9.1f %9.1f %9.1f %9.1f%n",
+                    entry.getKey(), latencies.length, recorder.errors.get(), (double) latencies.length / durationSeconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+        }
+        System.out.printf("%-9s %9d %8s %9.1f%n", "total", totalRequests, "", (double) totalRequests / durationSeconds);
+    }
+
+    private record Account(String email, String token) {
+    }
+
+    private Account signIn(String email) throws Exception {
+        JSONObject body = new JSONObject().put("name", "Load Test").put("email", email).put("password", PASSWORD);
+        HttpResponse<String> response = send(post("/api/user/register", body.toString()).build());
+        if (response.statusCode() != 200) {
+            response = send(post("/api/user/login", new JSONObject().put("email", email).put("password", PASSWORD).toString()).build());
+        }
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Could not sign in " + email + ": HTTP " + response.statusCode() + " " + response.body());
+        }
+        return new Account(email, new JSONObject(response.body()).getString("token"));
+    }
+
+    private boolean generate(Account account, String topic, String format, int pages, boolean bypassCache) throws Exception {
+        JSONObject body = new JSONObject()
+                .put("topic", topic)
+                .put("formatType", format)
+                .put("pageLimit", pages)
+                .put("bypassCache", bypassCache);
+        HttpResponse<String> response = send(post("/api/reports/generate", body.toString())
+                .header("Authorization", "Bearer " + account.token())
+                .build());
+        if (response.statusCode() != 200) return false;
+
+        // ✅ "Report generated: reports/a.docx, reports/a.pdf"
+        for (String part : response.body().split(",")) {
+            int slash = part.lastIndexOf("reports/");
+            if (slash >= 0) {
+                String file = part.substring(slash + "reports/".length()).trim();
+                if (generatedFiles.size() < 1000 && !generatedFiles.contains(file)) {
+                    generatedFiles.add(file);
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean download(Account account, String file) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/reports/download/"
+                        + URLEncoder.encode(file, StandardCharsets.UTF_8).replace("+", "%20")))
+                .timeout(timeout)
+                .header("Authorization", "Bearer " + account.token())
+                .GET()
+                .build();
+        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+        return response.statusCode() == 200;
+    }
+
+    private boolean stats() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/stats/all")).timeout(timeout).GET().build();
+        return send(request).statusCode() == 200;
+    }
+
+    private boolean login(Account account) throws Exception {
+        JSONObject body = new JSONObject().put("email", account.email()).put("password", PASSWORD);
+        return send(post("/api/user/login", body.toString()).build()).statusCode() == 200;
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            String endpoint = parts[0].trim();
+            if (!ENDPOINTS.contains(endpoint)) {
+                throw new IllegalArgumentException("Unknown endpoint in --mix: " + endpoint);
+            }
+            weights.put(endpoint, Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+
+    private static String pick(Map<String, Integer> mix, ThreadLocalRandom random) {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int roll = random.nextInt(total);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) return entry.getKey();
+        }
+        throw new IllegalStateException();
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    /**
+     * Latencies of one endpoint in nanoseconds; errors are timed too.
+     */
+    private static final class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int size;
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void record(long nanos, boolean ok) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            if (!ok) errors.incrementAndGet();
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.ReportOutline;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@code ReportGenerator.generateWordReport} does per request, minus the file write:
+ * renders a parsed outline into a discarding stream, in both streaming and POI mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WordReportBenchmark {
+
+    @Param({"1", "5", "15", "20"})
+    private int pages;
+
+    @Param({"true", "false"})
+    private boolean streaming;
+
+    private WordReportRenderer renderer;
+    private ReportOutline outline;
+
+    @Setup
+    public void setUp() throws IOException {
+        renderer = new WordReportRenderer(new DocxReportTemplate());
+        ReflectionTestUtils.setField(renderer, "streaming", streaming);
+        outline = BenchmarkReports.outline(pages);
+    }
+
+    @Benchmark
+    public void generateWordReport() throws Exception {
+        renderer.render(BenchmarkReports.TOPIC, outline, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.formlix.config;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class AIClientConfig {
+
+    /**
+     * One OkHttp client for every AI call, so connections (and their TLS sessions) to the
+     * Hugging Face router are reused instead of being set up per report. HTTP/2 is negotiated
+     * when the router offers it, multiplexing concurrent section calls over one connection;
+     * pings keep it alive between reports and detect dead connections early.
+     * Retries with backoff and the circuit breaker live in {@code AIService}.
+     */
+    @Bean
+    public OkHttpClient aiHttpClient(
+            @Value("${formlix.ai.http.connect-timeout-ms:10000}") long connectTimeoutMs,
+            @Value("${formlix.ai.http.read-timeout-ms:120000}") long readTimeoutMs,
+            @Value("${formlix.ai.http.max-idle-connections:32}") int maxIdleConnections,
+            @Value("${formlix.ai.http.keep-alive-minutes:5}") long keepAliveMinutes,
+            @Value("${formlix.ai.http.ping-interval-seconds:30}") long pingIntervalSeconds) {
+        return new OkHttpClient.Builder()
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMinutes, TimeUnit.MINUTES))
+                .pingInterval(pingIntervalSeconds, TimeUnit.SECONDS)
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.formlix.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * CPU-bound POI/iText rendering, one thread per core by default.
+     * When the queue is full the submitting request thread renders itself instead of failing.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor reportRenderExecutor(
+            @Value("${formlix.report.render.threads:0}") int threads,
+            @Value("${formlix.report.render.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-render-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Runs queued report jobs (AI call + render) off the servlet threads. Mostly waiting on the AI,
+     * so it is sized by configuration rather than by cores. A full queue rejects new jobs.
+     * In virtual-thread mode the workers are virtual and the pool can be much larger;
+     * rendering still hops to {@code reportRenderExecutor}.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor reportJobExecutor(
+            @Value("${formlix.report.jobs.threads:8}") int threads,
+            @Value("${formlix.report.jobs.virtual-threads:256}") int virtualThreads,
+            @Value("${formlix.report.jobs.queue-capacity:100}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        int poolSize = virtual ? virtualThreads : threads;
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-job-");
+        if (virtual) {
+            executor.setThreadFactory(Thread.ofVirtual().name("report-job-", 1).factory());
+        }
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Per-section AI calls of {@code SectionParallelGenerator}. Pure I/O waits, shared by all
+     * reports; each report additionally limits itself to {@code formlix.report.sections.parallelism}.
+     * A full queue makes the generating thread call the AI itself.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor reportSectionExecutor(
+            @Value("${formlix.report.sections.threads:32}") int threads,
+            @Value("${formlix.report.jobs.virtual-threads:256}") int virtualThreads,
+            @Value("${formlix.report.sections.queue-capacity:256}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        int poolSize = virtual ? virtualThreads : threads;
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-section-");
+        if (virtual) {
+            executor.setThreadFactory(Thread.ofVirtual().name("report-section-", 1).factory());
+        }
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Spring MVC async work: {@code StreamingResponseBody} downloads render on these threads.
+     * Declaring our own executors makes Boot's {@code applicationTaskExecutor} back off, so
+     * {@link WebAsyncConfig} registers this one instead of MVC's unbounded fallback. A full queue
+     * makes the servlet thread write the response itself.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor(
+            @Value("${formlix.web.async.threads:16}") int threads,
+            @Value("${formlix.report.jobs.virtual-threads:256}") int virtualThreads,
+            @Value("${formlix.web.async.queue-capacity:100}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        int poolSize = virtual ? virtualThreads : threads;
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        if (virtual) {
+            executor.setThreadFactory(Thread.ofVirtual().name("mvc-async-", 1).factory());
+        }
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    /**
+     * Background pre-generation of trending topics; deliberately small so it never competes
+     * with live reports for the AI endpoint.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor reportPrewarmExecutor(
+            @Value("${formlix.prewarm.concurrency:2}") int concurrency) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, concurrency));
+        executor.setMaxPoolSize(Math.max(1, concurrency));
+        executor.setThreadNamePrefix("report-prewarm-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.formlix.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier, e.g. inside a
+ * {@code synchronized} section of POI, iText or OkHttp.
+ * <p>
+ * Listens to the JFR {@code jdk.VirtualThreadPinned} event in-process. Each pin longer than
+ * {@code threshold-ms} is logged with the first non-JDK frame and counted in the
+ * {@code formlix.virtual.pinned} timer, tagged by that frame's class. For full stacks run the
+ * JVM with {@code -Djdk.tracePinnedThreads=full} instead.
+ */
+@Component
+@ConditionalOnProperty(name = {"spring.threads.virtual.enabled", "formlix.diagnostics.pinning.enabled"}, havingValue = "true")
+public class VirtualThreadPinningMonitor implements InitializingBean, DisposableBean {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final MeterRegistry meterRegistry;
+    private final long thresholdMs;
+    private RecordingStream recording;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${formlix.diagnostics.pinning.threshold-ms:20}") long thresholdMs) {
+        this.meterRegistry = meterRegistry;
+        this.thresholdMs = thresholdMs;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        recording = new RecordingStream();
+        recording.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        recording.onEvent(PINNED_EVENT, this::onPinned);
+        recording.startAsync();
+        System.out.println("📌 Virtual thread pinning monitor started (threshold " + thresholdMs + " ms)");
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String site = pinnedSite(event.getStackTrace());
+        meterRegistry.timer("formlix.virtual.pinned", "site", site).record(event.getDuration());
+        System.err.println("📌 Virtual thread pinned for " + event.getDuration().toMillis() + " ms at " + site);
+    }
+
+    // ✅ First frame outside the JDK, i.e. the library or app code holding the monitor
+    private static String pinnedSite(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) return "unknown";
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame()) continue;
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type;
+            }
+        }
+        return "jdk";
+    }
+
+    @Override
+    public void destroy() {
+        if (recording != null) {
+            recording.close();
+        }
+    }
+}
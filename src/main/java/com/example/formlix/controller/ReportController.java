@@ -2,10 +2,13 @@ package com.example.formlix.controller;
 
 import com.example.formlix.model.User;
 import com.example.formlix.repository.Userrepo;
+import com.example.formlix.service.FairReportScheduler;
+import com.example.formlix.service.ReportFileServer;
 import com.example.formlix.service.ReportGenerator;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -13,12 +16,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
-import java.net.MalformedURLException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/reports")
@@ -27,10 +31,18 @@ import java.util.Map;
 public class ReportController {
 
     private final ReportGenerator reportGenerator;
+    private final FairReportScheduler scheduler;
+    private final ReportFileServer reportFileServer;
     private final Userrepo userRepository; // ✅ Add this
 
+    /**
+     * Queued per user by {@link FairReportScheduler}; the servlet thread is released while the
+     * report waits for and runs on a worker. When the request times out or fails, the queued
+     * generation is cancelled so it does not take a worker for a caller that is gone.
+     */
     @PostMapping("/generate")
-    public ResponseEntity<String> generateReport(@RequestBody Map<String, Object> request) {
+    public DeferredResult<ResponseEntity<String>> generateReport(@RequestBody Map<String, Object> request,
+                                                                    HttpServletRequest httpRequest) {
         try {
             String topic = (String) request.get("topic");
             String formatType = request.getOrDefault("formatType", "docx").toString();
@@ -39,29 +51,59 @@ public class ReportController {
                     : 15;
 
             if (topic == null || topic.trim().isEmpty()) {
-                return ResponseEntity.badRequest().body("Topic is required");
+                return completed(ResponseEntity.badRequest().body("Topic is required"));
             }
 
             if (pageLimit < 1 || pageLimit > 20) {
-                return ResponseEntity.badRequest()
-                        .body("Page limit must be between 1 and 20");
+                return completed(ResponseEntity.badRequest()
+                        .body("Page limit must be between 1 and 20"));
             }
 
             // ✅ Get current logged in user
             User currentUser = getCurrentUser();
 
+            // ✅ "bypassCache": true forces a fresh AI generation for this topic
+            boolean bypassCache = Boolean.parseBoolean(String.valueOf(request.getOrDefault("bypassCache", false)));
+
             // ✅ Pass user to report generator
-            String result = reportGenerator.generateFromTopic(topic, formatType, pageLimit, currentUser);
-            return ResponseEntity.ok(result);
+            CompletableFuture<String> generation = scheduler.submit(
+                    FairReportScheduler.queueKeyFor(currentUser, httpRequest.getRemoteAddr()), pageLimit,
+                    () -> reportGenerator.generateFromTopic(topic, formatType, pageLimit, currentUser, bypassCache));
+
+            DeferredResult<ResponseEntity<String>> response = new DeferredResult<>();
+            // ✅ Keep the scheduler's own future: cancelling a derived one would never reach the queue
+            response.onTimeout(() -> {
+                generation.cancel(false);
+                response.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body("Report generation timed out"));
+            });
+            response.onError(error -> generation.cancel(false));
+            generation.whenComplete((result, error) -> {
+                if (error == null) {
+                    response.setResult(ResponseEntity.ok(result));
+                    return;
+                }
+                if (generation.isCancelled()) return;
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                cause.printStackTrace();
+                response.setResult(ResponseEntity.internalServerError()
+                        .body("Error generating report: " + cause.getMessage()));
+            });
+            return response;
+        } catch (TaskRejectedException e) {
+            return completed(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(e.getMessage() + ". Retry in 30 s."));
         } catch (Exception e) {
             e.printStackTrace();
-            return ResponseEntity.internalServerError()
-                    .body("Error generating report: " + e.getMessage());
+            return completed(ResponseEntity.internalServerError()
+                    .body("Error generating report: " + e.getMessage()));
         }
     }
 
     @PostMapping("/generate-from-text")
-    public ResponseEntity<String> generateReportFromText(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> generateReportFromText(@RequestBody Map<String, Object> request) {
         try {
             String topic = (String) request.get("topic");
             String content = (String) request.get("content");
@@ -85,6 +127,12 @@ public class ReportController {
             // ✅ Get current logged in user
             User currentUser = getCurrentUser();
 
+            // ✅ Opt-in: render straight into the response, no file + /download round-trip
+            if (Boolean.parseBoolean(String.valueOf(request.getOrDefault("stream", false)))) {
+                return streamReport(topic, content, formatType, pageLimit, currentUser,
+                        Boolean.parseBoolean(String.valueOf(request.getOrDefault("persist", false))));
+            }
+
             // ✅ Pass user to report generator
             String result = reportGenerator.generateFromText(topic, content, formatType, pageLimit, currentUser);
             return ResponseEntity.ok(result);
@@ -95,6 +143,35 @@ public class ReportController {
         }
     }
 
+    private ResponseEntity<?> streamReport(String topic, String content, String formatType, Integer pageLimit,
+                                           User currentUser, boolean persist) {
+        if (formatType.equalsIgnoreCase(ReportGenerator.FORMAT_BOTH)) {
+            return ResponseEntity.badRequest().body("Streaming supports a single format (docx or pdf)");
+        }
+
+        String fileName = reportGenerator.newFileName(topic, formatType);
+
+        // ✅ No Content-Length, so the servlet container sends the body chunked as it is rendered
+        StreamingResponseBody body = out -> {
+            try {
+                reportGenerator.streamFromText(topic, content, formatType, pageLimit, currentUser,
+                        persist ? fileName : null, out);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Error streaming report: " + e.getMessage(), e);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(contentTypeFor(fileName)))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        if (persist) {
+            response.header("X-Report-File", fileName);
+        }
+        return response.body(body);
+    }
+
     // ✅ Helper method to get current user
     private User getCurrentUser() {
         try {
@@ -111,54 +188,27 @@ public class ReportController {
         return null;
     }
 
+    /**
+     * Validators, ranges and zero-copy transfer are handled by {@link ReportFileServer}.
+     */
     @GetMapping("/download/{filename:.+}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String filename) {
-        try {
-
-
-            Path filePath = Paths.get("reports").resolve(filename).normalize();
-            File file = filePath.toFile();
-
-
-            if (!file.exists()) {
-                System.out.println("File not found!");
-                return ResponseEntity.notFound().build();
-            }
-
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (!resource.exists() || !resource.isReadable()) {
-                System.out.println("Resource not readable!");
-                return ResponseEntity.notFound().build();
-            }
-
-            String contentType;
-            if (filename.endsWith(".pdf")) {
-                contentType = "application/pdf";
-            } else if (filename.endsWith(".docx")) {
-                contentType = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
-            } else {
-                contentType = "application/octet-stream";
-            }
-
-            System.out.println("Sending file with content type: " + contentType);
+    public void downloadFile(@PathVariable String filename, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        reportFileServer.serve(filename, contentTypeFor(filename), request, response);
+    }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + resource.getFilename() + "\"")
-                    .body(resource);
+    private static DeferredResult<ResponseEntity<String>> completed(ResponseEntity<String> entity) {
+        DeferredResult<ResponseEntity<String>> result = new DeferredResult<>();
+        result.setResult(entity);
+        return result;
+    }
 
-        } catch (MalformedURLException e) {
-            System.out.println("MalformedURLException: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
-        } catch (Exception e) {
-            System.out.println("Exception: " + e.getMessage());
-            e.printStackTrace();
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+    private static String contentTypeFor(String filename) {
+        if (filename.endsWith(".pdf")) {
+            return "application/pdf";
+        } else if (filename.endsWith(".docx")) {
+            return "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
         }
+        return "application/octet-stream";
     }
-
-    
 }
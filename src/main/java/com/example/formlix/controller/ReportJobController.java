@@ -0,0 +1,111 @@
+package com.example.formlix.controller;
+
+import com.example.formlix.model.ReportJob;
+import com.example.formlix.model.User;
+import com.example.formlix.repository.Userrepo;
+import com.example.formlix.service.ReportJobService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Asynchronous counterpart of {@code POST /api/reports/generate}: submit returns 202 with the
+ * job right away, then poll {@code GET /jobs/{id}} or follow {@code GET /jobs/{id}/events} (SSE).
+ */
+@RestController
+@RequestMapping("/api/reports/jobs")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ReportJobController {
+
+    private final ReportJobService reportJobService;
+    private final Userrepo userRepository;
+
+    @PostMapping
+    public ResponseEntity<?> submitJob(@RequestBody Map<String, Object> request, HttpServletRequest httpRequest) {
+        try {
+            String topic = (String) request.get("topic");
+            String formatType = request.getOrDefault("formatType", "docx").toString();
+            Integer pageLimit = request.containsKey("pageLimit")
+                    ? Integer.parseInt(request.get("pageLimit").toString())
+                    : 15;
+
+            if (topic == null || topic.trim().isEmpty()) {
+                return ResponseEntity.badRequest().body("Topic is required");
+            }
+
+            if (pageLimit < 1 || pageLimit > 20) {
+                return ResponseEntity.badRequest()
+                        .body("Page limit must be between 1 and 20");
+            }
+
+            boolean bypassCache = Boolean.parseBoolean(String.valueOf(request.getOrDefault("bypassCache", false)));
+
+            ReportJob job = reportJobService.submit(topic, formatType, pageLimit, bypassCache, getCurrentUser(),
+                    httpRequest.getRemoteAddr());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/reports/jobs/" + job.getId()))
+                    .body(job);
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(e.getMessage() + ". Retry in 30 s.");
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.internalServerError()
+                    .body("Error submitting report job: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ReportJob> getJob(@PathVariable String id) {
+        ReportJob job = reportJobService.find(id, getCurrentUserEmail());
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String id) {
+        ReportJob job = reportJobService.find(id, getCurrentUserEmail());
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(reportJobService.subscribe(job));
+    }
+
+    private String getCurrentUserEmail() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !"anonymousUser".equals(authentication.getPrincipal())) {
+            return authentication.getName();
+        }
+        return null;
+    }
+
+    // ✅ Helper method to get current user
+    private User getCurrentUser() {
+        try {
+            String userEmail = getCurrentUserEmail();
+            if (userEmail != null) {
+                return userRepository.findByEmail(userEmail)
+                        .orElse(null);
+            }
+        } catch (Exception e) {
+            System.err.println("Error getting current user: " + e.getMessage());
+        }
+        return null;
+    }
+}
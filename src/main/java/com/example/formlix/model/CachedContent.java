@@ -0,0 +1,36 @@
+package com.example.formlix.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Second-level AI content cache entry, shared by every instance and kept across restarts.
+ * The content is stored deflate-compressed.
+ */
+@Entity
+@Table(name = "content_cache")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CachedContent {
+
+    // ✅ SHA-256 of the normalized topic and page limit
+    @Id
+    @Column(length = 64)
+    private String cacheKey;
+
+    private String topic;
+
+    private Integer pageLimit;
+
+    private byte[] compressedContent;
+
+    private Integer contentLength;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;
+}
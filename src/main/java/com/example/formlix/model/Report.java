@@ -21,6 +21,9 @@ public class Report {
 
     private String filePath;
 
+    // ✅ PDF copy when formatType is "both" (filePath then holds the DOCX)
+    private String pdfFilePath;
+
     // ✅ NEW: Store page limit for tracking
     private Integer pageLimit;
 
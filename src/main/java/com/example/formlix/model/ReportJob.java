@@ -0,0 +1,53 @@
+package com.example.formlix.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * In-memory state of an asynchronous report generation, as returned by {@code /api/reports/jobs}.
+ * Written by the job thread and read by request threads, hence the volatile fields.
+ */
+@Getter
+public class ReportJob {
+
+    private final String id = UUID.randomUUID().toString();
+    @JsonIgnore
+    private final String ownerEmail;
+    private final String topic;
+    private final String formatType;
+    private final Integer pageLimit;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private volatile ReportStage stage = ReportStage.QUEUED;
+    private volatile LocalDateTime updatedAt = createdAt;
+    private volatile String message;
+    private volatile List<String> downloadUrls = List.of();
+    private volatile String error;
+
+    public ReportJob(String ownerEmail, String topic, String formatType, Integer pageLimit) {
+        this.ownerEmail = ownerEmail;
+        this.topic = topic;
+        this.formatType = formatType;
+        this.pageLimit = pageLimit;
+    }
+
+    public void moveTo(ReportStage stage) {
+        this.stage = stage;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public void complete(String message, List<String> downloadUrls) {
+        this.message = message;
+        this.downloadUrls = List.copyOf(downloadUrls);
+        moveTo(ReportStage.SAVED);
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        moveTo(ReportStage.FAILED);
+    }
+}
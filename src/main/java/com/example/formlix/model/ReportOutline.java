@@ -0,0 +1,51 @@
+package com.example.formlix.model;
+
+import java.util.List;
+
+/**
+ * Parsed form of the AI markdown content, built once per report and shared by
+ * the DOCX and PDF renderers.
+ * <p>
+ * Content before the first "## " heading lands in an untitled {@link SectionKind#PREAMBLE} section.
+ */
+public record ReportOutline(List<Section> sections) {
+
+    public enum SectionKind {
+        PREAMBLE,
+        BODY,
+        CONCLUSION,
+        REFERENCES
+    }
+
+    public enum BlockType {
+        SUBSECTION,
+        PARAGRAPH,
+        REFERENCE,
+        BLANK
+    }
+
+    public record Section(String title, SectionKind kind, List<Block> blocks) {
+
+        // ✅ Conclusion and References always start on a fresh page
+        public boolean startsOnNewPage() {
+            return kind == SectionKind.CONCLUSION || kind == SectionKind.REFERENCES;
+        }
+
+        public boolean isReferences() {
+            return kind == SectionKind.REFERENCES;
+        }
+    }
+
+    /**
+     * A single line of content. For references {@code text} keeps the "12. " label and
+     * {@code labelLength} marks where the citation itself starts.
+     */
+    public record Block(BlockType type, String text, int labelLength) {
+
+        public static final Block BLANK = new Block(BlockType.BLANK, "", 0);
+
+        public String body() {
+            return labelLength == 0 ? text : text.substring(labelLength);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.formlix.model;
+
+/**
+ * Steps a report job goes through, in order. {@code SAVED} and {@code FAILED} are final.
+ */
+public enum ReportStage {
+    QUEUED,
+    PROMPTING,
+    AI_RECEIVED,
+    CLEANING,
+    RENDERING,
+    SAVED,
+    FAILED;
+
+    public boolean isFinal() {
+        return this == SAVED || this == FAILED;
+    }
+}
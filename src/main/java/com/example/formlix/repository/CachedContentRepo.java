@@ -0,0 +1,14 @@
+package com.example.formlix.repository;
+
+import com.example.formlix.model.CachedContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+
+public interface CachedContentRepo extends JpaRepository<CachedContent, String>
+{
+    @Transactional
+    long deleteByExpiresAtBefore(LocalDateTime cutoff);
+}
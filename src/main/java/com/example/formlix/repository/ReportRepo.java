@@ -1,10 +1,34 @@
 package com.example.formlix.repository;
 
 import com.example.formlix.model.Report;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 
 public interface ReportRepo extends JpaRepository<Report, Long>
 {
     long countByUserId(Long userId);
+
+    // ✅ Most requested (topic, pageLimit) pairs since a point in time, case-insensitive
+    @Query("select min(r.topic) as topic, r.pageLimit as pageLimit, count(r) as requests from Report r " +
+            "where r.createdAt >= :since and r.pageLimit is not null " +
+            "group by lower(trim(r.topic)), r.pageLimit " +
+            "having count(r) >= :minRequests " +
+            "order by count(r) desc")
+    List<TrendingTopic> findTrendingTopics(@Param("since") LocalDateTime since,
+                                           @Param("minRequests") long minRequests,
+                                           Pageable pageable);
+
+    interface TrendingTopic {
+        String getTopic();
+
+        Integer getPageLimit();
+
+        long getRequests();
+    }
 }
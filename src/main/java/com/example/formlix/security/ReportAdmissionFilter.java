@@ -0,0 +1,155 @@
+package com.example.formlix.security;
+
+import com.example.formlix.service.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Admission control for {@code /generate-from-text} (render only, on the request thread).
+ * <p>
+ * Requests over the {@link AdaptiveConcurrencyLimiter}'s limit get an immediate 429 with
+ * {@code Retry-After}, so they never hold a Tomcat worker for minutes and {@code /api/stats}
+ * and {@code /api/user/login} stay responsive.
+ * {@code /generate} is not limited here: it returns its servlet thread straight away and is
+ * bounded per user by {@code FairReportScheduler}. A global limit in front of it would let one
+ * user's reports take every permit and turn everyone else away before the fair queues see them.
+ * Runs after the security chain, so only authenticated requests count.
+ * Limiter state is published as {@code formlix.report.limiter.*} metrics.
+ */
+@Component
+public class ReportAdmissionFilter extends OncePerRequestFilter {
+
+    private static final String GENERATE_FROM_TEXT_PATH = "/api/reports/generate-from-text";
+
+    private final boolean enabled;
+    private final AdaptiveConcurrencyLimiter generateFromTextLimiter;
+    private final MeterRegistry meterRegistry;
+
+    public ReportAdmissionFilter(MeterRegistry meterRegistry,
+                                 @Value("${formlix.report.limiter.enabled:true}") boolean enabled,
+                                 @Value("${formlix.report.limiter.initial-limit:8}") int initialLimit,
+                                 @Value("${formlix.report.limiter.min-limit:2}") int minLimit,
+                                 @Value("${formlix.report.limiter.max-limit:64}") int maxLimit) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.generateFromTextLimiter = register(
+                new AdaptiveConcurrencyLimiter("generate-from-text", initialLimit, minLimit, maxLimit));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"POST".equals(request.getMethod()) || limiterFor(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        AdaptiveConcurrencyLimiter limiter = limiterFor(request);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+
+        if (permit == null) {
+            meterRegistry.counter("formlix.report.limiter.requests", "endpoint", limiter.getName(), "outcome", "rejected")
+                    .increment();
+            long retryAfterSeconds = Math.max(1, Math.min(120, (limiter.getRecentMillis() + 999) / 1000));
+            response.setStatus(429);
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Too many reports are being generated right now. Retry in "
+                    + retryAfterSeconds + " s.");
+            return;
+        }
+
+        meterRegistry.counter("formlix.report.limiter.requests", "endpoint", limiter.getName(), "outcome", "accepted")
+                .increment();
+
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+
+            // ✅ Streamed reports keep rendering after this returns; release when the response completes
+            if (request.isAsyncStarted()) {
+                async = true;
+                request.getAsyncContext().addListener(new ReleaseOnComplete(permit));
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            permit.release(true);
+            throw e;
+        } finally {
+            if (!async) {
+                permit.release(response.getStatus() >= 500);
+            }
+        }
+    }
+
+    private AdaptiveConcurrencyLimiter limiterFor(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (GENERATE_FROM_TEXT_PATH.equals(path)) return generateFromTextLimiter;
+        return null;
+    }
+
+    private AdaptiveConcurrencyLimiter register(AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("formlix.report.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("endpoint", limiter.getName())
+                .description("Allowed concurrent report generations")
+                .register(meterRegistry);
+        Gauge.builder("formlix.report.limiter.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("endpoint", limiter.getName())
+                .description("Report generations in progress")
+                .register(meterRegistry);
+        Gauge.builder("formlix.report.limiter.baseline", limiter, AdaptiveConcurrencyLimiter::getBaselineMillis)
+                .tag("endpoint", limiter.getName())
+                .description("Uncontended generation latency the limit adapts to")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("formlix.report.limiter.latency", limiter, AdaptiveConcurrencyLimiter::getRecentMillis)
+                .tag("endpoint", limiter.getName())
+                .description("Recent average generation latency")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        for (String outcome : new String[]{"accepted", "rejected"}) {
+            Counter.builder("formlix.report.limiter.requests")
+                    .tag("endpoint", limiter.getName())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+        return limiter;
+    }
+
+    private record ReleaseOnComplete(AdaptiveConcurrencyLimiter.Permit permit) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            int status = ((HttpServletResponse) event.getSuppliedResponse()).getStatus();
+            permit.release(status >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.release(true);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.release(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
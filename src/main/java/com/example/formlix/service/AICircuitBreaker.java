@@ -0,0 +1,86 @@
+package com.example.formlix.service;
+
+/**
+ * Consecutive-failure circuit breaker for the AI endpoint.
+ * <p>
+ * {@code CLOSED}: calls go through; {@code failureThreshold} failures in a row open the circuit.
+ * {@code OPEN}: calls are refused straight away, so report generation drops to its fallback
+ * content instead of waiting on connect and read timeouts. After {@code openMillis} one probe
+ * call is let through ({@code HALF_OPEN}); its outcome closes or re-opens the circuit.
+ * A call counts once, however many retries it took.
+ */
+public class AICircuitBreaker {
+
+    public enum State {CLOSED, HALF_OPEN, OPEN}
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+
+    public AICircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openMillis * 1_000_000;
+    }
+
+    /**
+     * @return whether the call may go ahead; every {@code true} must be followed by
+     * {@link #onSuccess()} or {@link #onFailure()}
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAtNanos < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default:
+                // ✅ Half-open: only the single probe call
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            System.out.println("🟢 AI circuit closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                System.err.println("🔴 AI circuit opened after " + consecutiveFailures + " consecutive failures");
+            }
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return milliseconds until an open circuit lets a probe through, 0 otherwise
+     */
+    public synchronized long getRetryAfterMillis() {
+        if (state != State.OPEN) return 0;
+        return Math.max(0, (openNanos - (System.nanoTime() - openedAtNanos)) / 1_000_000);
+    }
+}
@@ -1,19 +1,24 @@
 package com.example.formlix.service;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.TimeUnit;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 @Service
 public class AIService {
 
-    // ✅ Using Hugging Face's OpenAI-compatible endpoint
-    private static final String HF_API_URL = "https://router.huggingface.co/v1/chat/completions";
-
     // ✅ Popular, well-supported models (choose one):
     private static final String MODEL_ID = "meta-llama/Llama-3.2-3B-Instruct"; // Fast and reliable
     // Other alternatives:
@@ -22,11 +27,70 @@ public class AIService {
     // "mistralai/Mistral-7B-Instruct-v0.3" - Good balance
     // "microsoft/Phi-3.5-mini-instruct" - Fast and efficient
 
+    // ✅ Default completion budget when the caller has no plan from TokenBudgetPlanner
+    private static final int DEFAULT_MAX_TOKENS = 4000;
+
+    // ✅ Typical for English text; only used when a response reports no usage
+    private static final int ESTIMATED_CHARACTERS_PER_TOKEN = 4;
+
+    // ✅ Worth another attempt: rate limited or the router/model is briefly unavailable
+    private static final Set<Integer> RETRYABLE_CODES = Set.of(429, 500, 502, 503, 504);
+
     @Value("${huggingface.api.key}")
     private String HF_API_KEY;
 
+    // ✅ Hugging Face's OpenAI-compatible router by default; any compatible endpoint (or a local stub) works
+    @Value("${formlix.ai.url:https://router.huggingface.co/v1/chat/completions}")
+    private String apiUrl;
+
+    @Value("${formlix.ai.stream-usage:true}")
+    private boolean streamUsage;
+
+    private final OkHttpClient client;
+    private final AICircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final TokenBudgetPlanner tokenBudget;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+
+    public AIService(OkHttpClient aiHttpClient,
+                     MeterRegistry meterRegistry,
+                     TokenBudgetPlanner tokenBudget,
+                     @Value("${formlix.ai.retry.max-attempts:3}") int maxAttempts,
+                     @Value("${formlix.ai.retry.backoff-base-ms:500}") long backoffBaseMs,
+                     @Value("${formlix.ai.retry.backoff-max-ms:8000}") long backoffMaxMs,
+                     @Value("${formlix.ai.circuit.failure-threshold:5}") int failureThreshold,
+                     @Value("${formlix.ai.circuit.open-ms:30000}") long openMillis) {
+        this.client = aiHttpClient;
+        this.meterRegistry = meterRegistry;
+        this.tokenBudget = tokenBudget;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        this.circuitBreaker = new AICircuitBreaker(failureThreshold, openMillis);
+        Gauge.builder("formlix.ai.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 = closed, 1 = half-open, 2 = open")
+                .register(meterRegistry);
+    }
+
     // ✅ Updated: Now accepts a prompt string directly (with page info already included)
     public String generateContent(String prompt) {
+        return generateContent(prompt, DEFAULT_MAX_TOKENS);
+    }
+
+    /**
+     * Same as {@link #generateContent(String)} with an explicit {@code max_tokens} for the completion.
+     */
+    public String generateContent(String prompt, int maxTokens) {
+        return generateContent(prompt, maxTokens, null);
+    }
+
+    /**
+     * Same as {@link #generateContent(String, int)}, charging the tokens used to {@code grant}
+     * (when not {@code null}) instead of straight to the quota.
+     */
+    public String generateContent(String prompt, int maxTokens, TokenBudgetPlanner.Grant grant) {
         System.out.println("═══════════════════════════════════════");
         System.out.println("🤖 AI SERVICE CALLED");
         System.out.println("═══════════════════════════════════════");
@@ -39,49 +103,21 @@ public class AIService {
                 return "Error: API key not configured. Please check application.properties";
             }
 
-            OkHttpClient client = new OkHttpClient.Builder()
-                    .connectTimeout(60, TimeUnit.SECONDS)
-                    .writeTimeout(60, TimeUnit.SECONDS)
-                    .readTimeout(120, TimeUnit.SECONDS)
-                    .build();
-
             System.out.println("🚀 Sending request to Hugging Face...");
             System.out.println("📝 Using model: " + MODEL_ID);
             System.out.println("🔑 API Key: " + (HF_API_KEY != null ? HF_API_KEY.substring(0, Math.min(10, HF_API_KEY.length())) + "..." : "NOT SET"));
             System.out.println("📄 Prompt length: " + prompt.length() + " characters");
             System.out.println("📄 Prompt preview: " + prompt.substring(0, Math.min(150, prompt.length())) + "...");
 
-            // ✅ OpenAI-compatible request format
-            JSONObject requestBody = new JSONObject();
-            requestBody.put("model", MODEL_ID);
-
-            // Messages array format
-            JSONArray messages = new JSONArray();
-            JSONObject message = new JSONObject();
-            message.put("role", "user");
-            message.put("content", prompt);
-            messages.put(message);
-            requestBody.put("messages", messages);
-
-            // ✅ Adjusted parameters for longer, more detailed content
-            requestBody.put("temperature", 0.7);
-            requestBody.put("max_tokens", 4000); // ✅ Increased for longer reports (12+ pages)
-            requestBody.put("stream", false);
-
-            RequestBody body = RequestBody.create(
-                    requestBody.toString(),
-                    MediaType.get("application/json; charset=utf-8")
-            );
-
-            Request request = new Request.Builder()
-                    .url(HF_API_URL)
-                    .post(body)
-                    .addHeader("Authorization", "Bearer " + HF_API_KEY)
-                    .addHeader("Content-Type", "application/json")
-                    .build();
-
-            try (Response response = client.newCall(request).execute()) {
+            Request request = buildRequest(prompt, false, maxTokens);
+            if (!circuitBreaker.tryAcquire()) {
+                return circuitOpenError();
+            }
+
+            boolean upstreamHealthy = false;
+            try (Response response = execute(request)) {
                 if (!response.isSuccessful()) {
+                    upstreamHealthy = isCallersFault(response.code());
                     String errorBody = response.body() != null ? response.body().string() : "No error details";
                     System.err.println("❌ Hugging Face API error code: " + response.code());
                     System.err.println("❌ Error details: " + errorBody);
@@ -96,24 +132,21 @@ public class AIService {
                     return "Error: Unable to generate content (" + response.code() + "). Details: " + errorBody;
                 }
 
-                String responseBody = response.body().string();
+                // ✅ Decoded straight from the byte stream: no body string, no JSON tree
+                ChatCompletionDecoder.Completion completion = ChatCompletionDecoder.decode(response.body().byteStream());
+                // ✅ Only a body read to the end counts: a read timeout or a cut-off body is an upstream failure
+                upstreamHealthy = true;
                 System.out.println("✅ Received response from API");
+                String content = completion.content();
+                recordUsage(completion, "complete", prompt.length(), content != null ? content.length() : 0, grant);
 
-                // ✅ Parse OpenAI-compatible response format
-                JSONObject jsonResponse = new JSONObject(responseBody);
-
-                if (jsonResponse.has("choices")) {
-                    JSONArray choices = jsonResponse.getJSONArray("choices");
-                    if (choices.length() > 0) {
-                        JSONObject firstChoice = choices.getJSONObject(0);
-                        JSONObject messageObj = firstChoice.getJSONObject("message");
-                        String content = messageObj.getString("content");
-                        System.out.println("✅ Content generated successfully! Length: " + content.length() + " characters");
-                        return content.trim();
-                    }
+                if (content == null) {
+                    return "Error: Unexpected response format.";
                 }
-
-                return "Error: Unexpected response format.";
+                System.out.println("✅ Content generated successfully! Length: " + content.length() + " characters");
+                return content.trim();
+            } finally {
+                recordOutcome(upstreamHealthy);
             }
 
         } catch (Exception e) {
@@ -121,4 +154,246 @@ public class AIService {
             return "Error while generating AI content: " + e.getMessage();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Streaming variant of {@link #generateContent(String)}: sends {@code "stream": true} and
+     * hands each content delta of the OpenAI-compatible SSE response to {@code onDelta} as it
+     * arrives, on the calling thread.
+     *
+     * @return {@code true} once the stream completed, {@code false} on any error (already logged)
+     */
+    public boolean generateContentStreaming(String prompt, Consumer<String> onDelta) {
+        return generateContentStreaming(prompt, DEFAULT_MAX_TOKENS, onDelta);
+    }
+
+    /**
+     * Same as {@link #generateContentStreaming(String, Consumer)} with an explicit {@code max_tokens}.
+     */
+    public boolean generateContentStreaming(String prompt, int maxTokens, Consumer<String> onDelta) {
+        return generateContentStreaming(prompt, maxTokens, null, onDelta);
+    }
+
+    /**
+     * Same as {@link #generateContentStreaming(String, int, Consumer)}, charging the tokens used
+     * to {@code grant} (when not {@code null}) instead of straight to the quota.
+     */
+    public boolean generateContentStreaming(String prompt, int maxTokens, TokenBudgetPlanner.Grant grant,
+                                            Consumer<String> onDelta) {
+        if (HF_API_KEY == null || HF_API_KEY.trim().isEmpty() || HF_API_KEY.equals("your_api_key_here")) {
+            System.err.println("❌ CRITICAL: Hugging Face API key is not configured! Please set huggingface.api.key in application.properties");
+            return false;
+        }
+
+        if (!circuitBreaker.tryAcquire()) {
+            System.err.println(circuitOpenError());
+            return false;
+        }
+
+        System.out.println("🚀 Streaming request to Hugging Face (" + MODEL_ID + "), prompt length: " + prompt.length());
+
+        // ✅ Retries only happen before the first byte; a stream that breaks later is not replayed
+        boolean upstreamHealthy = false;
+        try (Response response = execute(buildRequest(prompt, true, maxTokens))) {
+            if (!response.isSuccessful()) {
+                upstreamHealthy = isCallersFault(response.code());
+                String errorBody = response.body() != null ? response.body().string() : "No error details";
+                System.err.println("❌ Hugging Face API error code: " + response.code());
+                System.err.println("❌ Error details: " + errorBody);
+                return false;
+            }
+
+            long characters = 0;
+            String finishReason = null;
+            ChatCompletionDecoder.Usage usage = ChatCompletionDecoder.Usage.NONE;
+            BufferedSource source = response.body().source();
+            boolean done = false;
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                // ✅ SSE: "data: {chunk}" lines, blank separators, "data: [DONE]" at the end
+                if (!line.startsWith("data:")) continue;
+                String data = line.substring(5).trim();
+                if (data.equals("[DONE]")) {
+                    done = true;
+                    break;
+                }
+
+                ChatCompletionDecoder.Completion chunk = ChatCompletionDecoder.decodeChunk(data);
+                if (chunk.finishReason() != null) finishReason = chunk.finishReason();
+                // ✅ With include_usage the last chunk carries the totals for the whole stream
+                if (chunk.usage().isKnown()) usage = chunk.usage();
+
+                String content = chunk.content();
+                if (content != null && !content.isEmpty()) {
+                    characters += content.length();
+                    onDelta.accept(content);
+                }
+            }
+
+            // ✅ The connection closed cleanly, but the completion was not over
+            if (!done && finishReason == null) {
+                throw new EOFException("AI stream ended before [DONE]");
+            }
+            upstreamHealthy = true;
+
+            System.out.println("✅ Stream finished. Length: " + characters + " characters");
+            recordUsage(new ChatCompletionDecoder.Completion(null, finishReason, usage), "stream",
+                    prompt.length(), characters, grant);
+            return characters > 0;
+        } catch (Exception e) {
+            System.err.println("❌ Error while streaming AI content: " + e.getMessage());
+            return false;
+        } finally {
+            recordOutcome(upstreamHealthy);
+        }
+    }
+
+    /**
+     * Sends the request on the shared client, retrying 429/5xx responses and connection errors
+     * up to {@code maxAttempts} times with full-jitter exponential backoff (or the server's
+     * {@code Retry-After}, when shorter than the cap). Timeouts are not retried: they already
+     * cost the full read timeout. Reports nothing to the circuit breaker: the caller, which
+     * acquired it, calls {@link #recordOutcome} once the body has been read (or failed to).
+     */
+    private Response execute(Request request) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            Response response;
+            try {
+                response = client.newCall(request).execute();
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts) throw e;
+                System.err.println("⚠️ AI call failed (" + e.getMessage() + "), retry " + attempt + "/" + (maxAttempts - 1));
+                backOff(attempt, null);
+                continue;
+            }
+
+            if (!RETRYABLE_CODES.contains(response.code()) || attempt >= maxAttempts) {
+                return response;
+            }
+
+            String retryAfter = response.header("Retry-After");
+            response.close();
+            System.err.println("⚠️ AI call returned " + response.code() + ", retry " + attempt + "/" + (maxAttempts - 1));
+            backOff(attempt, retryAfter);
+        }
+    }
+
+    // ✅ Other 4xx are our fault, not the upstream's, so they don't trip the circuit
+    private static boolean isCallersFault(int code) {
+        return !RETRYABLE_CODES.contains(code);
+    }
+
+    private void recordOutcome(boolean success) {
+        if (success) {
+            circuitBreaker.onSuccess();
+        } else {
+            circuitBreaker.onFailure();
+        }
+        meterRegistry.counter("formlix.ai.requests", "outcome", success ? "success" : "failure").increment();
+    }
+
+    private void backOff(int attempt, String retryAfter) throws InterruptedIOException {
+        meterRegistry.counter("formlix.ai.retries").increment();
+        long capMs = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt - 1, 20));
+        long delayMs = ThreadLocalRandom.current().nextLong(capMs + 1);
+        if (retryAfter != null) {
+            try {
+                delayMs = Math.min(backoffMaxMs, Long.parseLong(retryAfter.trim()) * 1000);
+            } catch (NumberFormatException ignored) {
+                // ✅ HTTP-date form; keep the jittered delay
+            }
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off");
+        }
+    }
+
+    /**
+     * Token accounting for capacity planning: {@code formlix.ai.tokens} summaries per request,
+     * tagged by {@code type} (prompt/completion) and {@code mode} (complete/stream). The total
+     * also goes to the {@link TokenBudgetPlanner} (through the caller's grant, if any), estimated
+     * from the text length when the response had no usage block.
+     */
+    private void recordUsage(ChatCompletionDecoder.Completion completion, String mode,
+                             long promptCharacters, long completionCharacters, TokenBudgetPlanner.Grant grant) {
+        ChatCompletionDecoder.Usage usage = completion.usage();
+        int tokens;
+        if (usage.totalTokens() >= 0) {
+            tokens = usage.totalTokens();
+        } else if (usage.isKnown()) {
+            tokens = Math.max(0, usage.promptTokens()) + Math.max(0, usage.completionTokens());
+        } else {
+            tokens = (int) ((promptCharacters + completionCharacters) / ESTIMATED_CHARACTERS_PER_TOKEN);
+        }
+        if (grant != null) {
+            grant.recordUsage(tokens);
+        } else {
+            tokenBudget.recordUsage(tokens);
+        }
+        if (usage.isKnown()) {
+            if (usage.promptTokens() >= 0) {
+                meterRegistry.summary("formlix.ai.tokens", "type", "prompt", "mode", mode, "model", MODEL_ID)
+                        .record(usage.promptTokens());
+            }
+            if (usage.completionTokens() >= 0) {
+                meterRegistry.summary("formlix.ai.tokens", "type", "completion", "mode", mode, "model", MODEL_ID)
+                        .record(usage.completionTokens());
+            }
+            System.out.println("🔢 Tokens: prompt " + usage.promptTokens() + ", completion " + usage.completionTokens()
+                    + (completion.finishReason() != null ? ", finish " + completion.finishReason() : ""));
+        }
+        if ("length".equals(completion.finishReason())) {
+            meterRegistry.counter("formlix.ai.truncated", "mode", mode).increment();
+            System.err.println("⚠️ AI completion hit max_tokens and was cut off");
+        }
+    }
+
+    private String circuitOpenError() {
+        meterRegistry.counter("formlix.ai.requests", "outcome", "rejected").increment();
+        return "Error: AI service unavailable (circuit open, retry in "
+                + (circuitBreaker.getRetryAfterMillis() + 999) / 1000 + " s)";
+    }
+
+    public AICircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private Request buildRequest(String prompt, boolean stream, int maxTokens) {
+        // ✅ OpenAI-compatible request format
+        JSONObject requestBody = new JSONObject();
+        requestBody.put("model", MODEL_ID);
+
+        // Messages array format
+        JSONArray messages = new JSONArray();
+        JSONObject message = new JSONObject();
+        message.put("role", "user");
+        message.put("content", prompt);
+        messages.put(message);
+        requestBody.put("messages", messages);
+
+        // ✅ Adjusted parameters for longer, more detailed content
+        requestBody.put("temperature", 0.7);
+        requestBody.put("max_tokens", maxTokens);
+        requestBody.put("stream", stream);
+        if (stream && streamUsage) {
+            // ✅ Asks for a final chunk with the usage block (OpenAI-compatible servers)
+            requestBody.put("stream_options", new JSONObject().put("include_usage", true));
+        }
+
+        RequestBody body = RequestBody.create(
+                requestBody.toString(),
+                MediaType.get("application/json; charset=utf-8")
+        );
+
+        return new Request.Builder()
+                .url(apiUrl)
+                .post(body)
+                .addHeader("Authorization", "Bearer " + HF_API_KEY)
+                .addHeader("Content-Type", "application/json")
+                .build();
+    }
+}
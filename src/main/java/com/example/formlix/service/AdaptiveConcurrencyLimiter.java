@@ -0,0 +1,135 @@
+package com.example.formlix.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Latency-driven limit on concurrent requests (gradient style, like Netflix's Gradient2).
+ * <p>
+ * Each finished request is a latency sample. The baseline is the lowest recent latency,
+ * i.e. what a request costs without contention. It drifts towards higher samples over a few
+ * minutes (by time, not sample count, so fast renders and slow AI calls drift alike), so a
+ * lasting shift such as a slower AI model is eventually accepted as the new normal.
+ * When recent requests take more than twice the baseline the limit shrinks in proportion
+ * (never below half per step). Otherwise it grows by a small queue allowance of
+ * {@code sqrt(limit)}. Failed requests shrink the limit by 10%, AIMD style.
+ * The limit only grows while at least half of it is actually in use, so a quiet period
+ * cannot inflate it.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // ✅ Roughly how long samples must stay above the baseline before it follows them
+    private static final long BASELINE_DRIFT_NANOS = 5L * 60 * 1_000_000_000;
+    private static final double RECENT_FACTOR = 1.0 / 5;
+    // ✅ Recent latency may exceed the baseline by this much before the limit shrinks
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private double limit;
+    private int inFlight;
+    private double baselineNanos;
+    private double recentNanos;
+    private long lastSampleNanos;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * @return a permit to release when the request finishes, or {@code null} when the limit is reached
+     */
+    public synchronized Permit tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return null;
+        }
+        inFlight++;
+        return new Permit(inFlight);
+    }
+
+    private synchronized void onRelease(long latencyNanos, int inFlightAtStart, boolean dropped) {
+        inFlight--;
+
+        if (dropped) {
+            limit = Math.max(minLimit, limit * DROP_BACKOFF);
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (baselineNanos == 0) {
+            baselineNanos = latencyNanos;
+            recentNanos = latencyNanos;
+            lastSampleNanos = now;
+            return;
+        }
+        if (latencyNanos < baselineNanos) {
+            baselineNanos = latencyNanos;
+        } else {
+            double drift = Math.min(1.0, (double) (now - lastSampleNanos) / BASELINE_DRIFT_NANOS);
+            baselineNanos += (latencyNanos - baselineNanos) * drift;
+        }
+        lastSampleNanos = now;
+        recentNanos += (latencyNanos - recentNanos) * RECENT_FACTOR;
+
+        // ✅ App-limited: not enough load to learn anything about a higher limit
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * baselineNanos / recentNanos));
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = Math.min(maxLimit, Math.max(minLimit, limit * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the uncontended request latency in milliseconds, 0 before the first sample
+     */
+    public synchronized long getBaselineMillis() {
+        return (long) (baselineNanos / 1_000_000);
+    }
+
+    /**
+     * @return the recent average request latency in milliseconds, 0 before the first sample
+     */
+    public synchronized long getRecentMillis() {
+        return (long) (recentNanos / 1_000_000);
+    }
+
+    public final class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * @param dropped {@code true} when the request failed or timed out
+         */
+        public void release(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                onRelease(System.nanoTime() - startNanos, inFlightAtStart, dropped);
+            }
+        }
+    }
+}
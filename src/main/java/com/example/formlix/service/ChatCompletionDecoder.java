@@ -0,0 +1,139 @@
+package com.example.formlix.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pulls the few fields we use out of an OpenAI-compatible chat completion with Jackson's
+ * streaming {@link JsonParser}, straight from the response bytes.
+ * <p>
+ * Only {@code choices[0].message.content} (or {@code .delta.content} for stream chunks),
+ * {@code choices[0].finish_reason} and the {@code usage} token counts are read; everything else
+ * is skipped without being materialized, so no body string and no JSON tree are built.
+ */
+final class ChatCompletionDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /**
+     * Token counts reported by the API; {@code -1} when the response had no {@code usage} block.
+     */
+    record Usage(int promptTokens, int completionTokens, int totalTokens) {
+
+        static final Usage NONE = new Usage(-1, -1, -1);
+
+        boolean isKnown() {
+            return promptTokens >= 0 || completionTokens >= 0;
+        }
+    }
+
+    /**
+     * @param content      {@code null} when the response had no choice with content
+     * @param finishReason {@code "length"} means the completion hit {@code max_tokens}
+     */
+    record Completion(String content, String finishReason, Usage usage) {
+    }
+
+    private ChatCompletionDecoder() {
+    }
+
+    /**
+     * Decodes a non-streaming response body ({@code choices[0].message}).
+     */
+    static Completion decode(InputStream body) throws IOException {
+        try (JsonParser parser = JSON.createParser(body)) {
+            return decode(parser, "message");
+        }
+    }
+
+    /**
+     * Decodes the JSON of one SSE {@code data:} line of a streaming response ({@code choices[0].delta}).
+     */
+    static Completion decodeChunk(String data) throws IOException {
+        try (JsonParser parser = JSON.createParser(data)) {
+            return decode(parser, "delta");
+        }
+    }
+
+    private static Completion decode(JsonParser parser, String contentHolder) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object");
+        }
+
+        Completion completion = new Completion(null, null, Usage.NONE);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals("choices") && value == JsonToken.START_ARRAY) {
+                completion = readChoices(parser, contentHolder, completion);
+            } else if (field.equals("usage") && value == JsonToken.START_OBJECT) {
+                completion = new Completion(completion.content(), completion.finishReason(), readUsage(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return completion;
+    }
+
+    // ✅ Only the first choice counts; the others are skipped
+    private static Completion readChoices(JsonParser parser, String contentHolder, Completion completion) throws IOException {
+        String content = completion.content();
+        String finishReason = completion.finishReason();
+        boolean first = true;
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (!first || token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            first = false;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals(contentHolder) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        boolean isContent = parser.currentName().equals("content");
+                        if (parser.nextToken() == JsonToken.VALUE_STRING && isContent) {
+                            content = parser.getText();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else if (field.equals("finish_reason") && value == JsonToken.VALUE_STRING) {
+                    finishReason = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Completion(content, finishReason, completion.usage());
+    }
+
+    private static Usage readUsage(JsonParser parser) throws IOException {
+        int prompt = -1;
+        int completion = -1;
+        int total = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() != JsonToken.VALUE_NUMBER_INT) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "prompt_tokens" -> prompt = parser.getIntValue();
+                case "completion_tokens" -> completion = parser.getIntValue();
+                case "total_tokens" -> total = parser.getIntValue();
+                default -> {
+                }
+            }
+        }
+        return new Usage(prompt, completion, total);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.CachedContent;
+import com.example.formlix.repository.CachedContentRepo;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Two-tier cache of cleaned AI report content, keyed by normalized topic and page limit.
+ * <p>
+ * L1 is a Caffeine cache in this JVM, bounded by approximate heap size (W-TinyLFU eviction,
+ * so a burst of one-off topics does not flush the popular ones) and expiring after {@code l1-ttl}.
+ * L2 is the {@code content_cache} table: deflate-compressed, shared by all instances and kept
+ * across restarts until {@code l2-ttl}. An L2 hit is copied into L1. Database errors are logged
+ * and treated as misses, so the cache can never fail a report.
+ * Lookups are counted as {@code formlix.content.cache} with {@code tier} and {@code result} tags.
+ */
+@Component
+public class ContentCache {
+
+    private static final Duration PURGE_INTERVAL = Duration.ofHours(1);
+
+    private final CachedContentRepo repository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration l2Ttl;
+    private final Cache<String, String> l1;
+
+    private volatile LocalDateTime nextPurge = LocalDateTime.now();
+
+    public ContentCache(CachedContentRepo repository,
+                        MeterRegistry meterRegistry,
+                        @Value("${formlix.content-cache.enabled:true}") boolean enabled,
+                        @Value("${formlix.content-cache.l1-max-bytes:67108864}") long l1MaxBytes,
+                        @Value("${formlix.content-cache.l1-ttl:6h}") Duration l1Ttl,
+                        @Value("${formlix.content-cache.l2-ttl:7d}") Duration l2Ttl) {
+        this.repository = repository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.l2Ttl = l2Ttl;
+        // ✅ Weighed in bytes: two per char plus the key and entry overhead
+        this.l1 = Caffeine.newBuilder()
+                .maximumWeight(l1MaxBytes)
+                .<String, String>weigher((key, content) -> 2 * content.length() + 200)
+                .expireAfterWrite(l1Ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, l1, "formlix.content.l1");
+    }
+
+    /**
+     * @return the cached content, or {@code null} on a miss in both tiers
+     */
+    public String get(String topic, int pageLimit) {
+        if (!enabled) return null;
+
+        String key = keyFor(topic, pageLimit);
+        String content = l1.getIfPresent(key);
+        if (content != null) {
+            count("l1", "hit");
+            System.out.println("♻️ Content cache hit (L1): " + topic + ", " + pageLimit + " pages");
+            return content;
+        }
+        count("l1", "miss");
+
+        try {
+            CachedContent entry = repository.findById(key).orElse(null);
+            if (entry == null || entry.getExpiresAt().isBefore(LocalDateTime.now())) {
+                if (entry != null) {
+                    repository.deleteById(key);
+                }
+                count("l2", "miss");
+                return null;
+            }
+
+            content = decompress(entry.getCompressedContent(), entry.getContentLength());
+            l1.put(key, content);
+            count("l2", "hit");
+            System.out.println("♻️ Content cache hit (L2): " + topic + ", " + pageLimit + " pages");
+            return content;
+        } catch (Exception e) {
+            count("l2", "error");
+            System.err.println("❌ Content cache read failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Like {@link #get} without loading the content or counting the lookup.
+     */
+    public boolean contains(String topic, int pageLimit) {
+        if (!enabled) return false;
+
+        String key = keyFor(topic, pageLimit);
+        if (l1.getIfPresent(key) != null) return true;
+        try {
+            return repository.findById(key)
+                    .map(entry -> entry.getExpiresAt().isAfter(LocalDateTime.now()))
+                    .orElse(false);
+        } catch (Exception e) {
+            System.err.println("❌ Content cache read failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public void put(String topic, int pageLimit, String content) {
+        if (!enabled || content == null) return;
+
+        String key = keyFor(topic, pageLimit);
+        l1.put(key, content);
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            byte[] compressed = compress(content);
+            repository.save(CachedContent.builder()
+                    .cacheKey(key)
+                    .topic(topic)
+                    .pageLimit(pageLimit)
+                    .compressedContent(compressed)
+                    .contentLength(content.length())
+                    .createdAt(now)
+                    .expiresAt(now.plus(l2Ttl))
+                    .build());
+            System.out.println("💾 Content cached: " + topic + ", " + pageLimit + " pages ("
+                    + content.length() + " chars, " + compressed.length + " bytes compressed)");
+
+            if (now.isAfter(nextPurge)) {
+                nextPurge = now.plus(PURGE_INTERVAL);
+                long purged = repository.deleteByExpiresAtBefore(now);
+                if (purged > 0) {
+                    System.out.println("🗑️ Content cache purged " + purged + " expired entries");
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Content cache write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Topics differing only in case, spacing or Unicode form ("Cyber  security", "cyber security")
+     * share one entry.
+     */
+    static String normalizeTopic(String topic) {
+        String normalized = Normalizer.normalize(topic, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return normalized.trim().replaceAll("\\s+", " ");
+    }
+
+    static String keyFor(String topic, int pageLimit) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha256.digest((normalizeTopic(topic) + "\n" + pageLimit).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void count(String tier, String result) {
+        meterRegistry.counter("formlix.content.cache", "tier", tier, "result", result).increment();
+    }
+
+    private static byte[] compress(String content) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(content.getBytes(StandardCharsets.UTF_8));
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length() / 3 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String decompress(byte[] compressed, int contentLength) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(contentLength + 64);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Truncated cache entry");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+}
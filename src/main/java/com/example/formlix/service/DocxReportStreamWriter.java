@@ -0,0 +1,100 @@
+package com.example.formlix.service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a report .docx straight into a zip stream, one paragraph at a time.
+ * <p>
+ * Page borders, numbering and fonts come from the {@link DocxReportTemplate} parts, so
+ * every paragraph is just a style reference plus its text. Nothing is kept per paragraph,
+ * which keeps memory flat no matter how many pages the report has.
+ * The static parts are written first and {@code word/document.xml} is left open
+ * until {@link #close()}. Closing finishes the zip but leaves {@code out} open for the caller.
+ */
+public class DocxReportStreamWriter implements Closeable {
+
+    private final DocxReportTemplate template;
+    private final ZipOutputStream zip;
+    private final Writer xml;
+
+    public DocxReportStreamWriter(OutputStream out, DocxReportTemplate template) throws IOException {
+        this.template = template;
+        this.zip = new ZipOutputStream(new UnclosableOutputStream(out), StandardCharsets.UTF_8);
+        this.xml = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 8192);
+
+        for (Map.Entry<String, byte[]> part : template.staticParts().entrySet()) {
+            zip.putNextEntry(new ZipEntry(part.getKey()));
+            zip.write(part.getValue());
+            zip.closeEntry();
+        }
+
+        zip.putNextEntry(new ZipEntry(DocxReportTemplate.DOCUMENT_PART));
+        xml.write(template.documentStart());
+    }
+
+    public void paragraph(String styleId, String text) throws IOException {
+        xml.write("<w:p><w:pPr><w:pStyle w:val=\"");
+        xml.write(styleId);
+        xml.write("\"/></w:pPr><w:r><w:t xml:space=\"preserve\">");
+        writeEscaped(text);
+        xml.write("</w:t></w:r></w:p>");
+    }
+
+    public void pageBreak() throws IOException {
+        xml.write("<w:p><w:r><w:br w:type=\"page\"/></w:r></w:p>");
+    }
+
+    public void spacer() throws IOException {
+        xml.write("<w:p/>");
+    }
+
+    @Override
+    public void close() throws IOException {
+        xml.write(template.documentEnd());
+        xml.flush();
+        zip.closeEntry();
+        zip.finish();
+        zip.close();
+    }
+
+    private void writeEscaped(String text) throws IOException {
+        int length = text.length();
+        int clean = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            String replacement;
+            if (c == '<') replacement = "&lt;";
+            else if (c == '>') replacement = "&gt;";
+            else if (c == '&') replacement = "&amp;";
+            else if ((c < 0x20 && c != '\t') || c == 0xFFFE || c == 0xFFFF) replacement = ""; // ✅ Not allowed in XML 1.0
+            else continue;
+
+            xml.write(text, clean, i - clean);
+            xml.write(replacement);
+            clean = i + 1;
+        }
+        xml.write(text, clean, length - clean);
+    }
+
+    // ✅ Lets zip.close() release its Deflater without closing the response/file stream underneath
+    private static final class UnclosableOutputStream extends FilterOutputStream {
+
+        UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.formlix.service;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The packaged report-template.docx, read once at startup.
+ * <p>
+ * The template carries the page borders, the reference numbering definition and the
+ * Formlix* paragraph styles, so generated paragraphs only need a style id.
+ * Every part except {@code word/document.xml} is copied verbatim into each report;
+ * the document part is split around its {@code <w:sectPr>} so the body can be
+ * streamed in between.
+ */
+@Component
+public class DocxReportTemplate {
+
+    public static final String TITLE = "FormlixTitle";
+    public static final String HEADING = "FormlixHeading";
+    public static final String HEADING_FIRST = "FormlixHeadingFirst";
+    public static final String SUBHEADING = "FormlixSubheading";
+    public static final String BODY = "FormlixBody";
+    public static final String BODY_FLUSH = "FormlixBodyFlush";
+    public static final String REFERENCE = "FormlixReference";
+
+    static final String DOCUMENT_PART = "word/document.xml";
+
+    private static final String TEMPLATE_PATH = "templates/report-template.docx";
+
+    private final byte[] templateBytes;
+    private final Map<String, byte[]> staticParts;
+    private final String documentStart;
+    private final String documentEnd;
+
+    public DocxReportTemplate() throws IOException {
+        try (InputStream in = new ClassPathResource(TEMPLATE_PATH).getInputStream()) {
+            this.templateBytes = in.readAllBytes();
+        }
+
+        Map<String, byte[]> parts = new LinkedHashMap<>();
+        String document = null;
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(templateBytes))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) continue;
+                byte[] data = zip.readAllBytes();
+                if (DOCUMENT_PART.equals(entry.getName())) {
+                    document = new String(data, StandardCharsets.UTF_8);
+                } else {
+                    parts.put(entry.getName(), data);
+                }
+            }
+        }
+
+        int sectPr = document != null ? document.lastIndexOf("<w:sectPr") : -1;
+        if (sectPr < 0) {
+            throw new IllegalStateException("Report template has no <w:sectPr> in " + DOCUMENT_PART);
+        }
+
+        this.staticParts = Collections.unmodifiableMap(parts);
+        this.documentStart = document.substring(0, sectPr);
+        this.documentEnd = document.substring(sectPr);
+
+        System.out.println("✅ DOCX report template loaded (" + templateBytes.length + " bytes, " + parts.size() + " static parts)");
+    }
+
+    // ✅ A fresh POI document per request; the template bytes themselves are never mutated
+    public XWPFDocument newDocument() throws IOException {
+        return new XWPFDocument(new ByteArrayInputStream(templateBytes));
+    }
+
+    Map<String, byte[]> staticParts() {
+        return staticParts;
+    }
+
+    String documentStart() {
+        return documentStart;
+    }
+
+    String documentEnd() {
+        return documentEnd;
+    }
+}
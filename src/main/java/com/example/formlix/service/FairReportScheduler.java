@@ -0,0 +1,266 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.User;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Orders report generations fairly between users instead of by arrival.
+ * <p>
+ * Every user (by id; anonymous callers by client address) has a FIFO queue. At most
+ * {@code workers} generations run at once on {@code reportJobExecutor} (by default one per pool
+ * thread, so 256 in virtual-thread mode); whenever one finishes,
+ * the next is picked deficit-round-robin: each queue's turn adds {@code quantum} pages of credit
+ * (times the bucket's weight), and a queued report runs once its page count is covered. So a
+ * user scripting dozens of 20-page reports gets the same page throughput as someone asking for
+ * one, and cannot hold every worker while others wait.
+ * <p>
+ * A user may have {@code max-queued-per-user} reports waiting, and {@code max-queued} may wait in
+ * total; beyond that {@link #submit} throws {@link TaskRejectedException}, like a full job pool.
+ * Queue wait is timed as {@code formlix.report.queue.wait}.
+ * <p>
+ * Cancelling the future returned by {@link #submit} (e.g. when the HTTP request times out)
+ * withdraws a report that is still waiting; one already on a worker finishes, but its result is dropped.
+ */
+@Service
+public class FairReportScheduler {
+
+    private static final String ANONYMOUS_PREFIX = "ip:";
+
+    private final Executor workerExecutor;
+    private final MeterRegistry meterRegistry;
+    private final int workers;
+    private final int quantum;
+    private final double anonymousWeight;
+    private final int maxQueuedPerUser;
+    private final int maxQueued;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, UserQueue> queues = new HashMap<>();
+    // ✅ Queues with work waiting, in round-robin order; the head is the one whose turn it is
+    private final Deque<UserQueue> rotation = new ArrayDeque<>();
+    private int queued;
+    private int running;
+
+    public FairReportScheduler(@Qualifier("reportJobExecutor") Executor workerExecutor,
+                               MeterRegistry meterRegistry,
+                               @Value("${formlix.report.scheduler.workers:0}") int workers,
+                               @Value("${formlix.report.scheduler.quantum:5}") int quantum,
+                               @Value("${formlix.report.scheduler.anonymous-weight:1.0}") double anonymousWeight,
+                               @Value("${formlix.report.scheduler.max-queued-per-user:5}") int maxQueuedPerUser,
+                               @Value("${formlix.report.scheduler.max-queued:100}") int maxQueued) {
+        this.workerExecutor = workerExecutor;
+        this.meterRegistry = meterRegistry;
+        this.workers = workers > 0 ? workers : poolSizeOf(workerExecutor);
+        this.quantum = Math.max(1, quantum);
+        this.anonymousWeight = anonymousWeight;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+        this.maxQueued = maxQueued;
+
+        Gauge.builder("formlix.report.queue.depth", this, scheduler -> scheduler.snapshot(0))
+                .description("Report generations waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("formlix.report.queue.running", this, scheduler -> scheduler.snapshot(1))
+                .description("Report generations on a worker")
+                .register(meterRegistry);
+        Gauge.builder("formlix.report.queue.users", this, scheduler -> scheduler.snapshot(2))
+                .description("Users with report generations waiting")
+                .register(meterRegistry);
+    }
+
+    // ✅ More workers than pool threads would only queue inside the pool, where fairness no longer applies
+    private static int poolSizeOf(Executor executor) {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            return Math.max(1, pool.getMaxPoolSize());
+        }
+        return 8;
+    }
+
+    /**
+     * The queue a caller's reports wait in: the user id when signed in, otherwise the client address.
+     */
+    public static String queueKeyFor(User user, String clientAddress) {
+        if (user != null && user.getId() != null) {
+            return "user:" + user.getId();
+        }
+        return ANONYMOUS_PREFIX + (clientAddress != null ? clientAddress : "unknown");
+    }
+
+    /**
+     * Queues {@code task} behind the caller's earlier reports.
+     *
+     * @param pages what the report costs in the round robin (its page limit)
+     * @return completes with the task's result once a worker has run it
+     * @throws TaskRejectedException when the caller's queue or the whole scheduler is full
+     */
+    public <T> CompletableFuture<T> submit(String queueKey, int pages, Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Job<T> job = new Job<>(task, result, Math.max(1, pages), System.nanoTime(),
+                queueKey.startsWith(ANONYMOUS_PREFIX) ? "anonymous" : "user");
+
+        lock.lock();
+        try {
+            UserQueue queue = queues.get(queueKey);
+            if (queue != null && queue.jobs.size() >= maxQueuedPerUser) {
+                reject("user-cap");
+                throw new TaskRejectedException("You already have " + queue.jobs.size() + " reports waiting");
+            }
+            if (queued >= maxQueued) {
+                reject("full");
+                throw new TaskRejectedException("Report queue is full");
+            }
+
+            if (queue == null) {
+                double weight = queueKey.startsWith(ANONYMOUS_PREFIX) ? anonymousWeight : 1.0;
+                queue = new UserQueue(queueKey, Math.max(1, (int) Math.round(quantum * weight)));
+                queues.put(queueKey, queue);
+                rotation.addLast(queue);
+            }
+            queue.jobs.addLast(job);
+            queued++;
+            dispatchLocked();
+        } finally {
+            lock.unlock();
+        }
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) withdraw(queueKey, job);
+        });
+        return result;
+    }
+
+    // ✅ A cancelled report gives its queue slot back straight away instead of when its turn comes
+    private void withdraw(String queueKey, Job<?> job) {
+        lock.lock();
+        try {
+            UserQueue queue = queues.get(queueKey);
+            if (queue == null || !queue.jobs.remove(job)) return;
+            queued--;
+            if (queue.jobs.isEmpty()) {
+                rotation.remove(queue);
+                queues.remove(queueKey);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLocked() {
+        while (running < workers) {
+            Job<?> job = nextLocked();
+            if (job == null) return;
+            // ✅ The caller gave up (request timed out) before its turn came
+            if (job.result.isDone()) continue;
+
+            running++;
+            try {
+                workerExecutor.execute(() -> run(job));
+            } catch (RuntimeException e) {
+                running--;
+                job.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Deficit round robin over the queues in {@link #rotation}.
+     */
+    private Job<?> nextLocked() {
+        while (true) {
+            UserQueue queue = rotation.peekFirst();
+            if (queue == null) return null;
+
+            Job<?> head = queue.jobs.peekFirst();
+            if (head.pages <= queue.deficit) {
+                queue.jobs.pollFirst();
+                queue.deficit -= head.pages;
+                queued--;
+                if (queue.jobs.isEmpty()) {
+                    // ✅ An idle queue keeps no credit, or it could burst past the others later
+                    rotation.pollFirst();
+                    queues.remove(queue.key);
+                }
+                return head;
+            }
+
+            // ✅ Not enough credit: this queue's turn is over, it gets its quantum for the next one
+            rotation.pollFirst();
+            queue.deficit += queue.quantum;
+            rotation.addLast(queue);
+        }
+    }
+
+    private <T> void run(Job<T> job) {
+        long waitNanos = System.nanoTime() - job.queuedAt;
+        Timer.builder("formlix.report.queue.wait")
+                .tag("bucket", job.bucket)
+                .description("Time a report generation waited for a worker")
+                .register(meterRegistry)
+                .record(waitNanos, TimeUnit.NANOSECONDS);
+        if (waitNanos > TimeUnit.SECONDS.toNanos(1)) {
+            System.out.println("⏳ Report waited " + TimeUnit.NANOSECONDS.toMillis(waitNanos) + " ms for a worker");
+        }
+
+        try {
+            job.result.complete(job.task.call());
+        } catch (Exception | Error e) {
+            job.result.completeExceptionally(e);
+        } finally {
+            lock.lock();
+            try {
+                running--;
+                dispatchLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void reject(String reason) {
+        meterRegistry.counter("formlix.report.queue.rejected", "reason", reason).increment();
+    }
+
+    private int snapshot(int which) {
+        lock.lock();
+        try {
+            return switch (which) {
+                case 0 -> queued;
+                case 1 -> running;
+                default -> rotation.size();
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class UserQueue {
+
+        private final String key;
+        private final int quantum;
+        private final Deque<Job<?>> jobs = new ArrayDeque<>();
+        private int deficit;
+
+        private UserQueue(String key, int quantum) {
+            this.key = key;
+            this.quantum = quantum;
+        }
+    }
+
+    private record Job<T>(Callable<T> task, CompletableFuture<T> result, int pages, long queuedAt, String bucket) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.formlix.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Ends a ranged read at the range's last byte.
+ */
+final class LimitedInputStream extends FilterInputStream {
+
+    private long remaining;
+
+    LimitedInputStream(InputStream in, long limit) {
+        super(in);
+        this.remaining = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (remaining <= 0) return -1;
+        int b = in.read();
+        if (b >= 0) remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (remaining <= 0) return -1;
+        int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+        if (read > 0) remaining -= read;
+        return read;
+    }
+}
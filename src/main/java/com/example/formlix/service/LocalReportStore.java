@@ -0,0 +1,216 @@
+package com.example.formlix.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reports on the local file system under {@code formlix.storage.local.root}, in
+ * {@code <root>/<ab>/<cd>/<fileName>} shards. Uploads are written to {@code <root>/.tmp} (same
+ * file system) and published with an atomic rename.
+ * <p>
+ * On startup, temporary files older than an hour (left by a crash) are removed. Reports from the
+ * old flat layout directly under the root are still found there, read-only, when their shard has
+ * no such file, so rows created before sharding keep downloading. They are moved into their
+ * shards only when {@code formlix.storage.local.migrate-flat-layout} is set for one start, since
+ * the move rewrites the directory (and anything checked in there).
+ */
+@Component
+@ConditionalOnProperty(name = "formlix.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalReportStore implements ReportStore {
+
+    private static final String TEMP_DIRECTORY = ".tmp";
+    private static final long STALE_TEMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Path root;
+    private final Path tempDirectory;
+    private final boolean migrateFlatLayout;
+    private final ApplicationEventPublisher events;
+
+    public LocalReportStore(@Value("${formlix.storage.local.root:reports}") String root,
+                            @Value("${formlix.storage.local.migrate-flat-layout:false}") boolean migrateFlatLayout,
+                            ApplicationEventPublisher events) {
+        this.migrateFlatLayout = migrateFlatLayout;
+        this.events = events;
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.tempDirectory = this.root.resolve(TEMP_DIRECTORY);
+    }
+
+    @PostConstruct
+    void prepare() throws IOException {
+        Files.createDirectories(tempDirectory);
+        long cutoff = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        try (Stream<Path> temps = Files.list(tempDirectory)) {
+            for (Path temp : temps.toList()) {
+                if (Files.getLastModifiedTime(temp).toMillis() < cutoff) {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+        List<Path> flatFiles = flatFiles();
+        if (flatFiles.isEmpty()) return;
+        if (!migrateFlatLayout) {
+            System.out.println("📦 " + flatFiles.size() + " reports in the old flat layout under " + root
+                    + " are served from there; start once with formlix.storage.local.migrate-flat-layout=true to shard them");
+            return;
+        }
+        migrate(flatFiles);
+    }
+
+    // ✅ Hidden files (.gitkeep, the temp directory) and directories are never part of the flat layout
+    private List<Path> flatFiles() throws IOException {
+        try (Stream<Path> entries = Files.list(root)) {
+            return entries.filter(file -> Files.isRegularFile(file)
+                    && ReportStore.isValidName(file.getFileName().toString())).toList();
+        }
+    }
+
+    private void migrate(List<Path> flatFiles) throws IOException {
+        int migrated = 0;
+        for (Path file : flatFiles) {
+            String name = file.getFileName().toString();
+            if (name.endsWith(".part")) {
+                // ✅ Part files of the flat layout never got published
+                Files.deleteIfExists(file);
+                continue;
+            }
+            Path target = pathFor(name);
+            Files.createDirectories(target.getParent());
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            migrated++;
+        }
+        System.out.println("📦 Moved " + migrated + " reports into shards under " + root);
+    }
+
+    @Override
+    public Upload create() throws IOException {
+        return new LocalUpload(tempDirectory.resolve(UUID.randomUUID() + ".part"));
+    }
+
+    @Override
+    public StoredReport stat(String fileName) throws IOException {
+        Path file = existing(fileName);
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new StoredReport(fileName, attributes.size(), attributes.lastModifiedTime().toMillis(), null);
+    }
+
+    @Override
+    public InputStream open(String fileName, long offset, long length) throws IOException {
+        ReportStore.requireValidRange(fileName, offset, length);
+        FileChannel channel = FileChannel.open(existing(fileName), StandardOpenOption.READ);
+        channel.position(offset);
+        return new LimitedInputStream(Channels.newInputStream(channel), length);
+    }
+
+    @Override
+    public Path localPath(String fileName) {
+        Path file = pathFor(fileName);
+        if (Files.isRegularFile(file)) return file;
+        Path flat = flatPathFor(fileName);
+        return flat != null && Files.isRegularFile(flat) ? flat : file;
+    }
+
+    @Override
+    public void delete(String fileName) throws IOException {
+        Files.deleteIfExists(pathFor(fileName));
+        Path flat = flatPathFor(fileName);
+        if (flat != null) Files.deleteIfExists(flat);
+        events.publishEvent(new Deleted(fileName));
+    }
+
+    @Override
+    public List<StoredReport> list() throws IOException {
+        List<StoredReport> reports = new ArrayList<>();
+        if (!Files.isDirectory(root)) return reports;
+
+        // ✅ <root>/<ab>/<cd>/<file>; the temp directory is skipped by its hidden name
+        try (Stream<Path> files = Files.find(root, 3, (path, attributes) -> attributes.isRegularFile()
+                && root.relativize(path).getNameCount() == 3
+                && !root.relativize(path).getName(0).toString().equals(TEMP_DIRECTORY))) {
+            files.forEach(file -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    reports.add(new StoredReport(file.getFileName().toString(), attributes.size(),
+                            attributes.lastModifiedTime().toMillis(), null));
+                } catch (IOException ignored) {
+                    // ✅ Deleted while scanning
+                }
+            });
+        }
+        return reports;
+    }
+
+    @Override
+    public String describe() {
+        return root.toString();
+    }
+
+    private Path pathFor(String fileName) {
+        return root.resolve(ReportStore.shardOf(ReportStore.requireValidName(fileName))).resolve(fileName);
+    }
+
+    // ✅ Where an unmigrated report of the flat layout would be; part files there never got published
+    private Path flatPathFor(String fileName) {
+        if (!ReportStore.isValidName(fileName) || fileName.endsWith(".part")) return null;
+        return root.resolve(fileName);
+    }
+
+    private Path existing(String fileName) throws NoSuchFileException {
+        if (!ReportStore.isValidName(fileName)) throw new NoSuchFileException(fileName);
+        Path file = pathFor(fileName);
+        if (Files.isRegularFile(file)) return file;
+        Path flat = flatPathFor(fileName);
+        if (flat != null && Files.isRegularFile(flat)) return flat;
+        throw new NoSuchFileException(fileName);
+    }
+
+    private final class LocalUpload implements Upload {
+
+        private final Path part;
+        private OutputStream out;
+        private boolean published;
+
+        private LocalUpload(Path part) {
+            this.part = part;
+        }
+
+        @Override
+        public OutputStream out() throws IOException {
+            if (out == null) {
+                out = Files.newOutputStream(part);
+            }
+            return out;
+        }
+
+        @Override
+        public void publish(String fileName) throws IOException {
+            Path target = pathFor(fileName);
+            out().close();
+            Files.createDirectories(target.getParent());
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            published = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (published) return;
+            if (out != null) out.close();
+            Files.deleteIfExists(part);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.formlix.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * Content-addressed names for rendered report files.
+ * <p>
+ * Identical (topic, content, formatType, pageLimit) inputs map to the same digest, and the
+ * digest is part of the file name ({@code Report_<topic>_<digest>.<ext>}), so a hit can reuse
+ * the existing file without touching POI/iText. There is no index to fill or bound: a lookup is
+ * one {@link ReportStore#stat} of the name the inputs render to, which holds across restarts and
+ * for every instance sharing an S3 store. The files belong to the Report rows that point at them
+ * and are never deleted here.
+ */
+@Component
+public class RenderCache {
+
+    private static final int DIGEST_HEX_LENGTH = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final boolean enabled;
+    private final ReportStore reportStore;
+
+    public RenderCache(ReportStore reportStore,
+                       @Value("${formlix.report.render-cache.enabled:true}") boolean enabled) {
+        this.reportStore = reportStore;
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the digest for these inputs, or {@code null} when the cache is disabled
+     */
+    public String keyFor(String topic, String content, String formatType, Integer pageLimit) {
+        if (!enabled) return null;
+
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // ✅ Length-prefixed fields so ("ab", "c") and ("a", "bc") never collide
+        update(sha256, topic);
+        update(sha256, content);
+        update(sha256, formatType.toLowerCase(Locale.ROOT));
+        update(sha256, String.valueOf(pageLimit));
+
+        byte[] hash = sha256.digest();
+        char[] hex = new char[DIGEST_HEX_LENGTH];
+        for (int i = 0; i < DIGEST_HEX_LENGTH / 2; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    public String fileNameFor(String topic, String key, String formatType) {
+        return "Report_" + ReportStore.fileNamePart(topic) + "_" + key + "." + formatType.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the file already rendered for {@code key}, or {@code null} on a miss
+     */
+    public String lookup(String topic, String key, String formatType) {
+        if (key == null) return null;
+
+        String fileName = fileNameFor(topic, key, formatType);
+        try {
+            reportStore.stat(fileName);
+        } catch (IOException e) {
+            return null;
+        }
+
+        System.out.println("♻️ Render cache hit: " + fileName);
+        return fileName;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        digest.update(new byte[]{
+                (byte) (bytes.length >>> 24), (byte) (bytes.length >>> 16), (byte) (bytes.length >>> 8), (byte) bytes.length});
+        digest.update(bytes);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.ReportOutline;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link ReportRenderSession} whose POI/iText work runs on the render pool instead of the
+ * thread feeding it (a virtual job thread reading the AI stream, in virtual-thread mode).
+ * <p>
+ * The session is opened, fed and finished from a bounded queue that is drained on
+ * {@code executor} one step at a time and in order, but only while there is work, so no pool
+ * thread waits for the AI. {@link #addSection} blocks while the queue is full. Several sessions
+ * (DOCX and PDF) drain side by side. The first error skips everything after it and is rethrown
+ * by {@link #finish()}.
+ */
+final class RenderPoolSession implements ReportRenderSession {
+
+    @FunctionalInterface
+    interface Opener {
+        ReportRenderSession open() throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run() throws Exception;
+    }
+
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final Executor executor;
+    private final BlockingQueue<Runnable> pending = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    // ✅ Only touched by the drain; the draining flag orders one drain after the previous one
+    private ReportRenderSession session;
+    private volatile Exception failure;
+    private boolean finishQueued;
+
+    RenderPoolSession(Executor executor, Opener opener) throws InterruptedException {
+        this.executor = executor;
+        enqueue(guarded(() -> session = opener.open()));
+    }
+
+    @Override
+    public void addSection(ReportOutline.Section section) throws Exception {
+        if (failure != null) return;
+        enqueue(guarded(() -> session.addSection(section)));
+    }
+
+    @Override
+    public void startFinish() throws Exception {
+        if (finishQueued) return;
+        finishQueued = true;
+        enqueue(guarded(() -> session.finish()));
+    }
+
+    @Override
+    public void finish() throws Exception {
+        startFinish();
+        awaitDrained();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Skips whatever is still queued and waits for a step in progress, so the caller can close
+     * the output stream. Does nothing more after {@link #finish()}.
+     */
+    void abandon() throws InterruptedException {
+        if (failure == null) failure = new CancellationException("Render abandoned");
+        awaitDrained();
+    }
+
+    private Runnable guarded(Step step) {
+        return () -> {
+            if (failure != null) return;
+            try {
+                step.run();
+            } catch (Exception e) {
+                failure = e;
+            }
+        };
+    }
+
+    private void awaitDrained() throws InterruptedException {
+        CompletableFuture<Void> drained = new CompletableFuture<>();
+        enqueue(() -> drained.complete(null));
+        try {
+            drained.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void enqueue(Runnable step) throws InterruptedException {
+        pending.put(step);
+        schedule();
+    }
+
+    private void schedule() {
+        if (draining.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable step;
+            while ((step = pending.poll()) != null) {
+                step.run();
+            }
+        } finally {
+            draining.set(false);
+            // ✅ A step queued between the last poll and the reset would otherwise wait forever
+            if (!pending.isEmpty()) schedule();
+        }
+    }
+}
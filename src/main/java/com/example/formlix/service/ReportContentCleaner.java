@@ -0,0 +1,308 @@
+package com.example.formlix.service;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Strips AI meta-text and markup noise from generated report content.
+ * <p>
+ * Produces exactly what the original chain of eight {@code String.replaceAll} calls produced:
+ * <ol>
+ *     <li>leading "Here is the report:", "I can provide ... report" and "I'll generate ..." text</li>
+ *     <li>{@code Page N} lines (plus any blank lines right after them) become one empty line</li>
+ *     <li>{@code **} bold markers are removed</li>
+ *     <li>three or more newlines collapse to two</li>
+ *     <li>{@code [IMAGE: ...]} markers are removed</li>
+ *     <li>lines with "illustrates" followed by an {@code [IMAGE} marker are blanked</li>
+ *     <li>the result is trimmed</li>
+ * </ol>
+ * The leading meta-text is matched with precompiled patterns anchored at the start, so they
+ * never rescan the body. Everything else is done in one line-by-line pass with two reusable
+ * line buffers. Content that uses line terminators other than {@code \n} (where regex
+ * {@code .}, {@code ^} and {@code $} behave differently) goes through precompiled patterns instead.
+ * <p>
+ * {@link Incremental} applies the same rules to content that arrives in chunks (streamed AI
+ * tokens) and hands back cleaned text as soon as it is final. It only treats {@code \n} as a
+ * line terminator.
+ */
+public final class ReportContentCleaner {
+
+    private static final Pattern HERE_IS_THE_REPORT = Pattern.compile("(?i).*?Here is the report:?\\s*");
+    private static final Pattern I_CAN_PROVIDE = Pattern.compile("(?i).*?I can provide.*?report.*?\\s*");
+    private static final Pattern I_WILL_GENERATE = Pattern.compile("(?i).*?I'll generate.*?\\s*");
+
+    private static final Pattern PAGE_NUMBER_LINE = Pattern.compile("(?m)^Page \\d+\\s*$");
+    private static final Pattern BOLD_MARKER = Pattern.compile("\\*\\*");
+    private static final Pattern EXTRA_NEWLINES = Pattern.compile("\\n{3,}");
+    private static final Pattern IMAGE_MARKER = Pattern.compile("\\[IMAGE:.*?\\]");
+    private static final Pattern IMAGE_CAPTION_LINE = Pattern.compile(".*?illustrates.*?\\[IMAGE.*");
+
+    private static final String IMAGE_OPEN = "[IMAGE:";
+    private static final String IMAGE_PREFIX = "[IMAGE";
+    private static final String ILLUSTRATES = "illustrates";
+
+    private ReportContentCleaner() {
+    }
+
+    public static String clean(String content) {
+        if (content == null) return "";
+
+        int start = skipMetaText(content);
+
+        if (hasOtherLineTerminators(content, start)) {
+            return cleanWithPatterns(content.substring(start));
+        }
+
+        LineCleaner cleaner = new LineCleaner(content.length() - start);
+        int pos = start;
+        while (true) {
+            int eol = content.indexOf('\n', pos);
+            if (eol < 0) {
+                cleaner.acceptLine(content, pos, content.length());
+                break;
+            }
+            cleaner.acceptLine(content, pos, eol);
+            pos = eol + 1;
+        }
+        return cleaner.take(true);
+    }
+
+    /**
+     * Cleans content fed in arbitrary chunks. The concatenation of everything returned by
+     * {@link #feed(CharSequence)} and {@link #finish()} equals {@link #clean(String)} of the
+     * whole content. The first few lines are held back until the leading meta-text is known.
+     * Instances are not thread-safe.
+     */
+    public static final class Incremental {
+
+        // ✅ Each meta-text pattern stays within one line, so 3 patterns never reach past the 4th non-blank line
+        private static final int HEAD_LINES = 4;
+        private static final int MAX_HEAD_CHARS = 16 * 1024;
+
+        private final LineCleaner cleaner = new LineCleaner(4096);
+        private final StringBuilder partialLine = new StringBuilder(256);
+        private StringBuilder head = new StringBuilder(1024);
+
+        public String feed(CharSequence chunk) {
+            if (head != null) {
+                head.append(chunk);
+                if (!headComplete()) return "";
+                chunk = releaseHead();
+            }
+
+            int length = chunk.length();
+            int lineStart = 0;
+            for (int i = 0; i < length; i++) {
+                if (chunk.charAt(i) != '\n') continue;
+
+                if (partialLine.length() > 0) {
+                    partialLine.append(chunk, lineStart, i);
+                    cleaner.acceptLine(partialLine, 0, partialLine.length());
+                    partialLine.setLength(0);
+                } else {
+                    cleaner.acceptLine(chunk, lineStart, i);
+                }
+                lineStart = i + 1;
+            }
+            if (lineStart < length) {
+                partialLine.append(chunk, lineStart, length);
+            }
+            return cleaner.take(false);
+        }
+
+        public String finish() {
+            String cleaned = head != null ? feed(releaseHead()) : "";
+            cleaner.acceptLine(partialLine, 0, partialLine.length());
+            partialLine.setLength(0);
+            return cleaned + cleaner.take(true);
+        }
+
+        private boolean headComplete() {
+            if (head.length() >= MAX_HEAD_CHARS) return true;
+            int nonBlankLines = 0;
+            boolean blank = true;
+            for (int i = 0; i < head.length(); i++) {
+                char c = head.charAt(i);
+                if (c == '\n') {
+                    if (!blank && ++nonBlankLines >= HEAD_LINES) return true;
+                    blank = true;
+                } else if (!Character.isWhitespace(c)) {
+                    blank = false;
+                }
+            }
+            return false;
+        }
+
+        private String releaseHead() {
+            String text = head.toString();
+            head = null;
+            return text.substring(skipMetaText(text));
+        }
+    }
+
+    private static int skipMetaText(String content) {
+        int start = skipPrefix(HERE_IS_THE_REPORT, content, 0);
+        start = skipPrefix(I_CAN_PROVIDE, content, start);
+        return skipPrefix(I_WILL_GENERATE, content, start);
+    }
+
+    // ✅ Equivalent to replaceAll("(?i)^...", "") on content.substring(start)
+    private static int skipPrefix(Pattern pattern, String content, int start) {
+        Matcher matcher = pattern.matcher(content).region(start, content.length());
+        return matcher.lookingAt() ? matcher.end() : start;
+    }
+
+    /**
+     * The line-by-line rules, fed one line (without its {@code \n}) at a time.
+     * Output is trimmed like {@link String#trim()}: leading whitespace is never written and
+     * trailing whitespace is held back by {@link #take(boolean)} until more text follows.
+     */
+    private static final class LineCleaner {
+
+        private final StringBuilder out;
+        private final StringBuilder unbolded = new StringBuilder(256);
+        private final StringBuilder line = new StringBuilder(256);
+
+        private int newlineRun;
+        private boolean firstLine = true;
+        private boolean afterPageNumber;
+        private boolean started;
+
+        LineCleaner(int capacity) {
+            out = new StringBuilder(capacity);
+        }
+
+        void acceptLine(CharSequence content, int start, int end) {
+            // ✅ "Page N" plus the blank lines right after it collapse into one empty line
+            if (afterPageNumber) {
+                if (isBlank(content, start, end)) return;
+                afterPageNumber = false;
+            }
+
+            if (!firstLine) {
+                // ✅ Never more than two newlines in a row
+                if (newlineRun < 2) {
+                    out.append('\n');
+                    newlineRun++;
+                }
+            }
+            firstLine = false;
+
+            if (isPageNumberLine(content, start, end)) {
+                afterPageNumber = true;
+                return;
+            }
+
+            removeBoldMarkers(content, start, end, unbolded);
+            if (unbolded.length() > 0) {
+                newlineRun = 0;
+                removeImageMarkers(unbolded, line);
+                if (!isImageCaption(line)) {
+                    out.append(line);
+                }
+            }
+        }
+
+        /**
+         * @param last {@code true} once no more lines follow, which drops trailing whitespace
+         * @return the cleaned text that is final so far
+         */
+        String take(boolean last) {
+            int from = 0;
+            int to = out.length();
+            if (!started) {
+                while (from < to && out.charAt(from) <= ' ') from++;
+                started = from < to;
+            }
+            while (to > from && out.charAt(to - 1) <= ' ') to--;
+
+            String cleaned = out.substring(from, to);
+            if (last) {
+                out.setLength(0);
+            } else {
+                out.delete(0, started ? to : out.length());
+            }
+            return cleaned;
+        }
+    }
+
+    private static boolean isPageNumberLine(CharSequence content, int start, int end) {
+        if (end - start <= 5 || !regionMatches(content, start, "Page ")) return false;
+        int i = start + 5;
+        int digitsStart = i;
+        while (i < end && content.charAt(i) >= '0' && content.charAt(i) <= '9') i++;
+        return i > digitsStart && isBlank(content, i, end);
+    }
+
+    private static boolean regionMatches(CharSequence content, int start, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (content.charAt(start + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // ✅ Regex \s minus the line terminators, which never occur inside a line here
+    private static boolean isBlank(CharSequence content, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = content.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\u000B' && c != '\f') return false;
+        }
+        return true;
+    }
+
+    // ✅ A run of n '*' keeps n % 2 of them, like replaceAll("\\*\\*", "")
+    private static void removeBoldMarkers(CharSequence content, int start, int end, StringBuilder target) {
+        target.setLength(0);
+        int i = start;
+        while (i < end) {
+            char c = content.charAt(i);
+            if (c != '*') {
+                target.append(c);
+                i++;
+                continue;
+            }
+            int runStart = i;
+            while (i < end && content.charAt(i) == '*') i++;
+            if (((i - runStart) & 1) == 1) {
+                target.append('*');
+            }
+        }
+    }
+
+    private static void removeImageMarkers(StringBuilder source, StringBuilder target) {
+        target.setLength(0);
+        int length = source.length();
+        int pos = 0;
+        while (pos < length) {
+            int open = source.indexOf(IMAGE_OPEN, pos);
+            if (open < 0) break;
+            int close = source.indexOf("]", open + IMAGE_OPEN.length());
+            if (close < 0) break;
+            target.append(source, pos, open);
+            pos = close + 1;
+        }
+        target.append(source, pos, length);
+    }
+
+    private static boolean isImageCaption(StringBuilder line) {
+        int illustrates = line.indexOf(ILLUSTRATES);
+        return illustrates >= 0 && line.indexOf(IMAGE_PREFIX, illustrates + ILLUSTRATES.length()) >= 0;
+    }
+
+    private static boolean hasOtherLineTerminators(String content, int start) {
+        for (int i = start; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') return true;
+        }
+        return false;
+    }
+
+    private static String cleanWithPatterns(String content) {
+        content = PAGE_NUMBER_LINE.matcher(content).replaceAll("");
+        content = BOLD_MARKER.matcher(content).replaceAll("");
+        content = EXTRA_NEWLINES.matcher(content).replaceAll("\n\n");
+        content = IMAGE_MARKER.matcher(content).replaceAll("");
+        content = IMAGE_CAPTION_LINE.matcher(content).replaceAll("");
+        return content.trim();
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.ReportOutline;
+import com.example.formlix.model.ReportOutline.Block;
+import com.example.formlix.model.ReportOutline.BlockType;
+import com.example.formlix.model.ReportOutline.Section;
+import com.example.formlix.model.ReportOutline.SectionKind;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single-pass tokenizer for the "## " / "### " markdown produced by the AI.
+ * <p>
+ * Lines are classified in place on the incoming character data, so the only strings
+ * allocated are the trimmed texts that end up in the {@link ReportOutline}.
+ * Content can be handed over in one piece via {@link #parse(CharSequence)} or in
+ * arbitrary chunks via {@link #feed(CharSequence)} followed by {@link #finish()}.
+ * While feeding, {@link #completedSections()} hands out every section whose next heading has
+ * arrived, so it can be rendered before the rest of the content exists.
+ * Instances are not thread-safe.
+ */
+public final class ReportContentParser {
+
+    private final List<Section> sections = new ArrayList<>();
+    private final StringBuilder partialLine = new StringBuilder();
+
+    private String sectionTitle;
+    private SectionKind sectionKind = SectionKind.PREAMBLE;
+    private List<Block> blocks = new ArrayList<>();
+    private int pendingBlankLines;
+    private int handedOut;
+
+    public static ReportOutline parse(CharSequence content) {
+        ReportContentParser parser = new ReportContentParser();
+        if (content != null) {
+            parser.feed(content);
+        }
+        return parser.finish();
+    }
+
+    public void feed(CharSequence chunk) {
+        int length = chunk.length();
+        int lineStart = 0;
+
+        for (int i = 0; i < length; i++) {
+            if (chunk.charAt(i) != '\n') continue;
+
+            if (partialLine.length() > 0) {
+                partialLine.append(chunk, lineStart, i);
+                acceptLine(partialLine, 0, partialLine.length());
+                partialLine.setLength(0);
+            } else {
+                acceptLine(chunk, lineStart, i);
+            }
+            lineStart = i + 1;
+        }
+
+        if (lineStart < length) {
+            partialLine.append(chunk, lineStart, length);
+        }
+    }
+
+    /**
+     * @return sections closed since the previous call, in order
+     */
+    public List<Section> completedSections() {
+        if (handedOut == sections.size()) return List.of();
+        List<Section> completed = List.copyOf(sections.subList(handedOut, sections.size()));
+        handedOut = sections.size();
+        return completed;
+    }
+
+    public ReportOutline finish() {
+        if (partialLine.length() > 0) {
+            acceptLine(partialLine, 0, partialLine.length());
+            partialLine.setLength(0);
+        }
+        // ✅ Trailing blank lines are dropped, same as String.split
+        pendingBlankLines = 0;
+        closeSection();
+        return new ReportOutline(Collections.unmodifiableList(sections));
+    }
+
+    private void acceptLine(CharSequence line, int start, int end) {
+        int trimStart = start;
+        int trimEnd = end;
+        while (trimStart < trimEnd && line.charAt(trimStart) <= ' ') trimStart++;
+        while (trimEnd > trimStart && line.charAt(trimEnd - 1) <= ' ') trimEnd--;
+
+        if (trimStart == trimEnd) {
+            pendingBlankLines++;
+            return;
+        }
+
+        while (pendingBlankLines > 0) {
+            blocks.add(Block.BLANK);
+            pendingBlankLines--;
+        }
+
+        // ✅ Main section heading
+        if (startsWith(line, start, end, "## ")) {
+            closeSection();
+            sectionTitle = trimmed(line, start + 3, end);
+            if (containsIgnoreCase(line, start, end, "reference")) {
+                sectionKind = SectionKind.REFERENCES;
+            } else if (containsIgnoreCase(line, start, end, "conclusion")) {
+                sectionKind = SectionKind.CONCLUSION;
+            } else {
+                sectionKind = SectionKind.BODY;
+            }
+            return;
+        }
+
+        // ✅ Subsection heading - Conclusion is rendered without subsections
+        if (startsWith(line, start, end, "### ")) {
+            if (sectionKind != SectionKind.CONCLUSION) {
+                blocks.add(new Block(BlockType.SUBSECTION, trimmed(line, start + 4, end), 0));
+            }
+            return;
+        }
+
+        // ✅ Numbered reference ("12. Author, A. ...")
+        if (sectionKind == SectionKind.REFERENCES) {
+            int labelEnd = referenceLabelEnd(line, start, end);
+            if (labelEnd > 0) {
+                blocks.add(new Block(BlockType.REFERENCE,
+                        line.subSequence(trimStart, trimEnd).toString(),
+                        Math.min(labelEnd, trimEnd) - trimStart));
+                return;
+            }
+        }
+
+        blocks.add(new Block(BlockType.PARAGRAPH, line.subSequence(trimStart, trimEnd).toString(), 0));
+    }
+
+    private void closeSection() {
+        if (sectionTitle != null || !blocks.isEmpty()) {
+            sections.add(new Section(sectionTitle, sectionKind, Collections.unmodifiableList(blocks)));
+        }
+        blocks = new ArrayList<>();
+    }
+
+    /**
+     * Returns the index just past "digits." and any whitespace after it, or -1 when the
+     * line does not start with a reference number.
+     */
+    private static int referenceLabelEnd(CharSequence line, int start, int end) {
+        int i = start;
+        while (i < end && line.charAt(i) >= '0' && line.charAt(i) <= '9') i++;
+        if (i == start || i >= end || line.charAt(i) != '.') return -1;
+        i++;
+        while (i < end && Character.isWhitespace(line.charAt(i))) i++;
+        return i;
+    }
+
+    private static String trimmed(CharSequence line, int start, int end) {
+        while (start < end && line.charAt(start) <= ' ') start++;
+        while (end > start && line.charAt(end - 1) <= ' ') end--;
+        return line.subSequence(start, end).toString();
+    }
+
+    private static boolean startsWith(CharSequence line, int start, int end, String prefix) {
+        if (end - start < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line.charAt(start + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // ✅ Lower-case ASCII needle only; avoids a toLowerCase() copy of every heading
+    private static boolean containsIgnoreCase(CharSequence line, int start, int end, String needle) {
+        int last = end - needle.length();
+        outer:
+        for (int i = start; i <= last; i++) {
+            for (int j = 0; j < needle.length(); j++) {
+                if (Character.toLowerCase(line.charAt(i + j)) != needle.charAt(j)) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.formlix.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Serves files from the {@link ReportStore} with HTTP validators and byte ranges.
+ * <p>
+ * Every response carries a strong {@code ETag} and {@code Last-Modified}. The ETag is the store's
+ * own (e.g. S3's) or else made of the modification time and size, as nginx does: a report is
+ * only ever replaced by publishing a new file, so that changes both, and no byte of the file is
+ * read just to name it. The validators are kept in memory for {@code validator-ttl-ms}, so a
+ * repeat request whose {@code If-None-Match} / {@code If-Modified-Since} still matches gets a
+ * {@code 304} without a single file system call. Bodies are only sent after a fresh {@code stat}.
+ * <p>
+ * A single {@code Range: bytes=...} is answered with {@code 206 Partial Content} (or {@code 416}
+ * when it lies past the end), honouring {@code If-Range}; several ranges get the whole file.
+ * Local files go out zero-copy when the connector supports sendfile: Tomcat is handed the file
+ * via its request attributes. Otherwise, and for remote stores, the (ranged) bytes are copied
+ * through a buffer to the response.
+ * <p>
+ * A {@link ReportStore.Deleted} report loses its cached validators at once, so it is not
+ * revalidated with a {@code 304} after it is gone.
+ */
+@Component
+public class ReportFileServer {
+
+    // ✅ Tomcat's sendfile contract (see org.apache.coyote.Constants / Globals)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_CONTROL = "private, no-cache";
+
+    private record Validators(String etag, long lastModified, long size) {
+    }
+
+    private record ByteRange(long start, long end) {
+
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    // ✅ Marks a Range header that is well-formed but starts past the end of the file
+    private static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private final MeterRegistry meterRegistry;
+    private final ReportStore reportStore;
+    private final Cache<String, Validators> validators;
+
+    public ReportFileServer(ReportStore reportStore,
+                            MeterRegistry meterRegistry,
+                            @Value("${formlix.report.download.validator-ttl-ms:60000}") long validatorTtlMillis,
+                            @Value("${formlix.report.download.validator-cache-size:10000}") long validatorCacheSize) {
+        this.reportStore = reportStore;
+        this.meterRegistry = meterRegistry;
+        // ✅ Bounded staleness: a file replaced or removed outside the store is noticed within the TTL
+        this.validators = Caffeine.newBuilder()
+                .maximumSize(validatorCacheSize)
+                .expireAfterWrite(Duration.ofMillis(validatorTtlMillis))
+                .build();
+    }
+
+    @EventListener
+    public void onDeleted(ReportStore.Deleted deleted) {
+        validators.invalidate(deleted.fileName());
+    }
+
+    /**
+     * Writes the response for {@code GET}/{@code HEAD} of {@code fileName}: 200, 206, 304, 404 or 416.
+     */
+    public void serve(String fileName, String contentType,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!ReportStore.isValidName(fileName)) {
+            count("not-found");
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String key = fileName;
+
+        // ✅ Revalidation answered from memory; only a miss goes to the disk
+        Validators known = validators.getIfPresent(key);
+        if (known != null && notModified(known, request)) {
+            sendNotModified(known, response);
+            return;
+        }
+
+        Validators current;
+        try {
+            current = validatorsFor(key);
+        } catch (NoSuchFileException e) {
+            validators.invalidate(key);
+            System.out.println("File not found: " + fileName);
+            count("not-found");
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (notModified(current, request)) {
+            sendNotModified(current, response);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ETAG, current.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, current.lastModified());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + key + "\"");
+
+        ByteRange range = rangeFor(request, current);
+        if (range == UNSATISFIABLE) {
+            count("unsatisfiable");
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + current.size());
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        if (range == null) {
+            range = new ByteRange(0, current.size() - 1);
+            response.setStatus(HttpServletResponse.SC_OK);
+            count("full");
+        } else {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + range.start() + "-" + range.end() + "/" + current.size());
+            count("partial");
+        }
+        response.setContentLengthLong(Math.max(0, range.length()));
+
+        if ("HEAD".equals(request.getMethod()) || range.length() <= 0) return;
+        sendBytes(key, range, request, response);
+    }
+
+    private Validators validatorsFor(String key) throws IOException {
+        ReportStore.StoredReport stored = reportStore.stat(key);
+        String etag = stored.etag() != null
+                ? quoted(stored.etag())
+                : '"' + Long.toHexString(stored.lastModified()) + "-" + Long.toHexString(stored.size()) + '"';
+        Validators current = new Validators(etag, stored.lastModified(), stored.size());
+        validators.put(key, current);
+        return current;
+    }
+
+    private static String quoted(String etag) {
+        return etag.startsWith("\"") ? etag : '"' + etag + '"';
+    }
+
+    /**
+     * {@code If-None-Match} wins over {@code If-Modified-Since}, as RFC 9110 asks.
+     */
+    private static boolean notModified(Validators validators, HttpServletRequest request) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.equals("*")) return true;
+                // ✅ Weak comparison: a proxy may have weakened our tag
+                if (candidate.startsWith("W/")) candidate = candidate.substring(2);
+                if (candidate.equals(validators.etag())) return true;
+            }
+            return false;
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && validators.lastModified() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private void sendNotModified(Validators validators, HttpServletResponse response) {
+        count("not-modified");
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        response.setHeader(HttpHeaders.ETAG, validators.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, validators.lastModified());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+    }
+
+    /**
+     * @return the single range asked for, {@code null} for the whole file, or {@link #UNSATISFIABLE}
+     */
+    private static ByteRange rangeFor(HttpServletRequest request, Validators validators) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) return null;
+
+        // ✅ A resumed download of a file that has since changed starts over
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                if (!ifRange.equals(validators.etag())) return null;
+            } else if (dateHeader(request, HttpHeaders.IF_RANGE) / 1000 != validators.lastModified() / 1000) {
+                return null;
+            }
+        }
+
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+        long size = validators.size();
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // ✅ "bytes=-500": the last 500 bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) return UNSATISFIABLE;
+                return new ByteRange(Math.max(0, size - suffix), size - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            // ✅ "bytes=500-100" is not a valid range; it is ignored rather than refused
+            if (end < start) return null;
+            if (start >= size) return UNSATISFIABLE;
+            return new ByteRange(start, Math.min(end, size - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private void sendBytes(String key, ByteRange range, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        Path file = reportStore.localPath(key);
+        if (file != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // ✅ Tomcat writes the file with sendfile(2) once this request returns
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, range.start());
+            request.setAttribute(SENDFILE_END, range.end() + 1);
+            return;
+        }
+
+        try (InputStream in = reportStore.open(key, range.start(), range.length())) {
+            in.transferTo(response.getOutputStream());
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("formlix.report.downloads", "outcome", outcome).increment();
+    }
+}
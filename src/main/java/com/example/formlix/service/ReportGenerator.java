@@ -1,42 +1,207 @@
 package com.example.formlix.service;
 
 import com.example.formlix.model.Report;
+import com.example.formlix.model.ReportOutline;
+import com.example.formlix.model.ReportStage;
 import com.example.formlix.model.User;
 import com.example.formlix.repository.ReportRepo;
 import lombok.RequiredArgsConstructor;
-import org.apache.poi.xwpf.usermodel.*;
-import org.openxmlformats.schemas.wordprocessingml.x2006.main.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
-import java.math.BigInteger;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class ReportGenerator {
 
+    public static final String FORMAT_BOTH = "both";
+
+    // ✅ Hard cap per page for adjustContentForPageLimit; above the prompt's target so AI overshoot survives
+    static final int MAX_CHARACTERS_PER_PAGE = 4500;
+
     private final ReportRepo reportRepository;
+    private final WordReportRenderer wordReportRenderer;
+    private final PdfReportRenderer pdfReportRenderer;
+    private final RenderCache renderCache;
+    private final ReportStore reportStore;
+    private final ContentCache contentCache;
+    private final ReportTemplates reportTemplates;
+    private final TokenBudgetPlanner tokenBudget;
 
     @Autowired
     private AIService aiService;
 
+    @Autowired
+    @Qualifier("reportRenderExecutor")
+    private Executor renderExecutor;
+
+    @Value("${formlix.report.ai-streaming:true}")
+    private boolean aiStreaming;
+
+    @Autowired
+    private SectionParallelGenerator sectionGenerator;
+
+    // ✅ Identical requests arriving together share one AI call and one render
+    private final SingleFlight<String> contentFlights = new SingleFlight<>("AI generation");
+    private final SingleFlight<GeneratedReport> renderFlights = new SingleFlight<>("render");
+    private final AtomicInteger activeGenerations = new AtomicInteger();
+
+    /**
+     * Files written by one generation; {@code pdfFileName} is only set for {@code "both"}.
+     */
+    public record GeneratedReport(String fileName, String pdfFileName) {
+
+        public List<String> fileNames() {
+            return pdfFileName != null ? List.of(fileName, pdfFileName) : List.of(fileName);
+        }
+
+        public String message() {
+            if (pdfFileName != null) {
+                return "Report generated: reports/" + fileName + ", reports/" + pdfFileName;
+            }
+            return "Report generated: reports/" + fileName;
+        }
+    }
+
     public String generateFromText(String topic, String content, String formatType, Integer pageLimit, User user) throws Exception {
-        String fileName = "Report_" + topic.replace(" ", "_") + "_" + System.currentTimeMillis() + "." + formatType;
+        return generateFromText(topic, content, formatType, pageLimit, user, stage -> {
+        }).message();
+    }
+
+    public GeneratedReport generateFromText(String topic, String content, String formatType, Integer pageLimit, User user,
+                                            Consumer<ReportStage> progress) throws Exception {
+        boolean both = formatType.equalsIgnoreCase(FORMAT_BOTH);
+        String primaryFormat = both ? "docx" : formatType;
+
+        // ✅ Identical inputs reuse the already rendered file
+        String primaryKey = renderCache.keyFor(topic, content, primaryFormat, pageLimit);
+        String pdfKey = both ? renderCache.keyFor(topic, content, "pdf", pageLimit) : null;
+        String fileName = renderCache.lookup(topic, primaryKey, primaryFormat);
+        String pdfFileName = both ? renderCache.lookup(topic, pdfKey, "pdf") : null;
+
+        if (fileName == null || (both && pdfFileName == null)) {
+            progress.accept(ReportStage.RENDERING);
+            String renderKey = primaryKey != null ? primaryKey + (pdfKey != null ? "+" + pdfKey : "") : null;
+            String cachedFileName = fileName;
+            String cachedPdfFileName = pdfFileName;
+            GeneratedReport rendered = renderFlights.run(renderKey, () -> renderMissing(topic, content, primaryFormat,
+                    pageLimit, primaryKey, pdfKey, cachedFileName, cachedPdfFileName, both));
+            fileName = rendered.fileName();
+            pdfFileName = rendered.pdfFileName();
+        }
+
+        saveReport(topic, formatType, fileName, pdfFileName, pageLimit, user);
+        return new GeneratedReport(fileName, pdfFileName);
+    }
+
+    private GeneratedReport renderMissing(String topic, String content, String primaryFormat, Integer pageLimit,
+                                          String primaryKey, String pdfKey, String fileName, String pdfFileName,
+                                          boolean both) throws Exception {
+        boolean renderPrimary = fileName == null;
+        boolean renderPdf = both && pdfFileName == null;
+
+        String baseName = newBaseName(topic);
+        if (renderPrimary) {
+            fileName = primaryKey != null
+                    ? renderCache.fileNameFor(topic, primaryKey, primaryFormat)
+                    : baseName + "." + primaryFormat;
+        }
+        if (renderPdf) {
+            pdfFileName = pdfKey != null ? renderCache.fileNameFor(topic, pdfKey, "pdf") : baseName + ".pdf";
+        }
+
+        // ✅ Parse the content once; both renderers walk the same outline
+        ReportOutline outline = ReportContentParser.parse(adjustContentForPageLimit(content, pageLimit));
+
+        String singleFileName = renderPdf ? pdfFileName : fileName;
+        if (renderPrimary && renderPdf) {
+            generateBothReports(topic, outline, fileName, pdfFileName);
+        } else if (renderPdf || !primaryFormat.equalsIgnoreCase("docx")) {
+            renderOnPlatformThread(() -> generatePdfReport(topic, outline, singleFileName));
+        } else {
+            renderOnPlatformThread(() -> generateWordReport(topic, outline, singleFileName));
+        }
+
+        return new GeneratedReport(fileName, pdfFileName);
+    }
+
+    /**
+     * Renders straight into {@code out} (typically the servlet response) instead of a file.
+     * When {@code persistAs} is set, the bytes are also written to a {@link ReportStore.Upload}
+     * as they are sent; it is published with a Report row on the render pool once the response
+     * is complete. A failing copy is dropped without affecting the response.
+     */
+    public void streamFromText(String topic, String content, String formatType, Integer pageLimit, User user,
+                               String persistAs, OutputStream out) throws Exception {
+        ReportOutline outline = ReportContentParser.parse(adjustContentForPageLimit(content, pageLimit));
+
+        if (persistAs == null) {
+            renderTo(topic, formatType, outline, out);
+            out.flush();
+            return;
+        }
 
+        ReportStore.Upload upload = reportStore.create();
+        boolean handedOff = false;
+        try {
+            TeeOutputStream target = new TeeOutputStream(out, new BufferedOutputStream(upload.out(), 64 * 1024));
+            renderTo(topic, formatType, outline, target);
+            target.flush();
+            if (!target.closeCopy()) {
+                System.err.println("❌ Failed to persist streamed report " + persistAs + ": copy could not be written");
+                return;
+            }
+
+            CompletableFuture.runAsync(() -> {
+                try (upload) {
+                    upload.publish(persistAs);
+                    saveReport(topic, formatType, persistAs, null, pageLimit, user);
+                } catch (Exception e) {
+                    System.err.println("❌ Failed to persist streamed report " + persistAs + ": " + e.getMessage());
+                }
+            }, renderExecutor);
+            handedOff = true;
+        } finally {
+            if (!handedOff) upload.close();
+        }
+    }
+
+    private void renderTo(String topic, String formatType, ReportOutline outline, OutputStream out) throws Exception {
         if (formatType.equalsIgnoreCase("docx")) {
-            generateWordReport(topic, content, fileName, pageLimit);
+            wordReportRenderer.render(topic, outline, out);
         } else {
-            generatePdfReport(topic, content, fileName, pageLimit);
+            pdfReportRenderer.render(topic, outline, out);
         }
+    }
 
+    public String newFileName(String topic, String formatType) {
+        return newBaseName(topic) + "." + formatType;
+    }
+
+    // ✅ The random suffix keeps two requests for one topic in the same millisecond apart
+    private String newBaseName(String topic) {
+        return "Report_" + ReportStore.fileNamePart(topic) + "_" + System.currentTimeMillis()
+                + "_" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private void saveReport(String topic, String formatType, String fileName, String pdfFileName, Integer pageLimit, User user) {
         Report report = Report.builder()
                 .topic(topic)
                 .formatType(formatType)
                 .filePath(fileName)
+                .pdfFilePath(pdfFileName)
                 .pageLimit(pageLimit)
                 .user(user)
                 .createdAt(LocalDateTime.now())
@@ -44,355 +209,371 @@ public class ReportGenerator {
 
         reportRepository.save(report);
         System.out.println("✅ Report saved with user: " + (user != null ? user.getEmail() : "anonymous"));
-
-        return "Report generated: reports/" + fileName;
     }
 
     public String generateFromTopic(String topic, String formatType, Integer pageLimit, User user) throws Exception {
-        String content = fetchContentFromAI(topic, pageLimit);
-        return generateFromText(topic, content, formatType, pageLimit, user);
+        return generateFromTopic(topic, formatType, pageLimit, user, stage -> {
+        }).message();
     }
 
-    private String fetchContentFromAI(String topic, Integer pageLimit) {
-        int actualLimit = pageLimit != null ? pageLimit : 15;
+    public String generateFromTopic(String topic, String formatType, Integer pageLimit, User user,
+                                    boolean bypassCache) throws Exception {
+        return generateFromTopic(topic, formatType, pageLimit, user, bypassCache, stage -> {
+        }).message();
+    }
 
-        String prompt = "Generate a complete academic research report on: " + topic + "\n\n" +
-                "CRITICAL INSTRUCTIONS:\n" +
-                "- DO NOT write 'Here is the report' or any meta-text\n" +
-                "- Start DIRECTLY with '## Introduction'\n" +
-                "- Use '## ' for main sections and '### ' for subsections\n" +
-                "- NO page numbers, NO [IMAGE:] markers\n" +
-                "- Each paragraph must be 5-7 sentences\n" +
-                "- Generate approximately " + (actualLimit * 3500) + " characters\n\n" +
-
-                "MANDATORY STRUCTURE (Generate ALL sections):\n\n" +
-
-                "## Introduction\n" +
-                "### Background and Context\n" +
-                "(Write 4 detailed paragraphs about the topic's background, importance, and context)\n\n" +
-                "### Scope of the Study\n" +
-                "(Write 3 paragraphs about what this report covers)\n\n" +
-                "### Significance\n" +
-                "(Write 3 paragraphs about why this topic matters)\n\n" +
-
-                "## Literature Review\n" +
-                "### Theoretical Framework\n" +
-                "(Write 5 paragraphs about theories and frameworks)\n\n" +
-                "### Historical Perspective\n" +
-                "(Write 4 paragraphs about historical development)\n\n" +
-                "### Current Research Trends\n" +
-                "(Write 5 paragraphs about recent research)\n\n" +
-                "### Research Gaps\n" +
-                "(Write 3 paragraphs about what's missing in current research)\n\n" +
-
-                "## Aim and Objectives\n" +
-                "### Primary Aim\n" +
-                "(Write 3 paragraphs)\n\n" +
-                "### Specific Objectives\n" +
-                "(Write 4 paragraphs)\n\n" +
-                "### Expected Outcomes\n" +
-                "(Write 3 paragraphs)\n\n" +
-
-                "## Methodology\n" +
-                "### Research Design\n" +
-                "(Write 5 paragraphs)\n\n" +
-                "### Data Collection Methods\n" +
-                "(Write 5 paragraphs)\n\n" +
-                "### Sampling Strategy\n" +
-                "(Write 4 paragraphs)\n\n" +
-                "### Data Analysis Techniques\n" +
-                "(Write 5 paragraphs)\n\n" +
-                "### Ethical Considerations\n" +
-                "(Write 3 paragraphs)\n\n" +
-
-                "## Results and Discussion\n" +
-                "### Key Findings\n" +
-                "(Write 6 paragraphs)\n\n" +
-                "### Detailed Analysis\n" +
-                "(Write 7 paragraphs)\n\n" +
-                "### Comparison with Existing Literature\n" +
-                "(Write 5 paragraphs)\n\n" +
-                "### Implications\n" +
-                "(Write 5 paragraphs)\n\n" +
-
-                "## Conclusion\n" +
-                "(Write 6-8 comprehensive paragraphs summarizing everything. Each paragraph should be 5-7 detailed sentences. NO subsections here. Cover: summary of findings, key insights, practical implications, limitations, future directions, and final thoughts.)\n\n" +
-
-                "## References\n" +
-                "1. Author, A. (Year). Title. Journal/Publisher.\n" +
-                "(List 15-20 formatted references)\n\n" +
-
-                "IMPORTANT: Generate the COMPLETE report with ALL sections. Do not stop after Introduction!";
+    /**
+     * Same as {@link #generateFromTopic(String, String, Integer, User)}, reporting each
+     * {@link ReportStage} to {@code progress} as it starts (used by the report job API).
+     */
+    public GeneratedReport generateFromTopic(String topic, String formatType, Integer pageLimit, User user,
+                                             Consumer<ReportStage> progress) throws Exception {
+        return generateFromTopic(topic, formatType, pageLimit, user, false, progress);
+    }
 
+    /**
+     * @param bypassCache skip the content cache lookup and always ask the AI; the fresh content
+     *                    still replaces the cached one
+     */
+    public GeneratedReport generateFromTopic(String topic, String formatType, Integer pageLimit, User user,
+                                             boolean bypassCache, Consumer<ReportStage> progress) throws Exception {
+        activeGenerations.incrementAndGet();
         try {
-            System.out.println("🔄 Requesting AI content for: " + topic);
-            String aiContent = aiService.generateContent(prompt);
+            return generateFromTopicWithCache(topic, formatType, pageLimit, user, bypassCache, progress);
+        } finally {
+            activeGenerations.decrementAndGet();
+        }
+    }
 
-            if (aiContent == null || aiContent.trim().isEmpty()) {
-                System.err.println("❌ AI returned empty content");
-                return generateFallbackContent(topic, actualLimit);
-            }
+    /**
+     * Number of {@code generateFromTopic} calls currently running, i.e. live AI-backed traffic.
+     */
+    public int getActiveGenerations() {
+        return activeGenerations.get();
+    }
 
-            aiContent = cleanAIResponse(aiContent);
+    /**
+     * Fills the content cache for a topic ahead of demand, without rendering or saving a report.
+     * Does nothing when the content is already cached or a live request is generating it.
+     *
+     * @return whether the AI was asked
+     */
+    public boolean prewarmContent(String topic, int pageLimit) {
+        if (contentCache.contains(topic, pageLimit)) return false;
+
+        SingleFlight.Flight<String> flight = contentFlights.begin(ContentCache.keyFor(topic, pageLimit));
+        if (!flight.isLeader()) return false;
+
+        String content = null;
+        // ✅ Background work only takes quota that is free right now, never a downgraded plan
+        try (TokenBudgetPlanner.Grant grant = tokenBudget.tryAcquire(pageLimit)) {
+            if (grant == null) return false;
+            content = fetchFreshContent(topic, grant, stage -> {
+            });
+            if (content != null) {
+                contentCache.put(topic, pageLimit, content);
+            }
+        } finally {
+            flight.complete(content);
+        }
+        return true;
+    }
 
-            if (!aiContent.contains("## Conclusion") || aiContent.length() < 8000) {
-                System.err.println("⚠️ AI content incomplete (length: " + aiContent.length() + "), using fallback");
-                return generateFallbackContent(topic, actualLimit);
+    private GeneratedReport generateFromTopicWithCache(String topic, String formatType, Integer pageLimit, User user,
+                                                       boolean bypassCache, Consumer<ReportStage> progress) throws Exception {
+        int actualLimit = pageLimit != null ? pageLimit : 15;
+        if (!bypassCache) {
+            String cached = contentCache.get(topic, actualLimit);
+            if (cached != null) {
+                return generateFromText(topic, cached, formatType, pageLimit, user, progress);
             }
+        }
 
-            System.out.println("✅ Generated content length: " + aiContent.length() + " characters");
-            return aiContent;
+        // ✅ Same normalized topic and page limit already being generated: wait for that AI result
+        SingleFlight.Flight<String> flight = contentFlights.begin(ContentCache.keyFor(topic, actualLimit));
+        String content;
+        if (!flight.isLeader()) {
+            progress.accept(ReportStage.PROMPTING);
+            content = flight.await(() -> fetchBudgetedContent(topic, actualLimit, progress));
+        } else {
+            try {
+                // ✅ Sized to the page count; may queue for quota, shrink, or be refused (fallback)
+                TokenBudgetPlanner.Grant grant = tokenBudget.acquire(actualLimit);
+                if (grant == null) {
+                    content = null;
+                } else {
+                    try (grant) {
+                        if (aiStreaming && !grant.plan().sections()) {
+                            return generateFromAIStream(topic, formatType, pageLimit, user, grant, flight, progress);
+                        }
+                        content = fetchFreshContent(topic, grant, progress);
+                    }
+                    // ✅ Only real AI content is cached, never the fallback
+                    if (content != null) {
+                        contentCache.put(topic, cachedPages(grant, actualLimit), content);
+                    }
+                }
+            } catch (Exception | Error e) {
+                flight.fail(e);
+                throw e;
+            }
+            flight.complete(content);
+        }
 
-        } catch (Exception e) {
-            System.err.println("❌ Exception in fetchContentFromAI: " + e.getMessage());
-            return generateFallbackContent(topic, actualLimit);
+        if (content == null) {
+            content = reportTemplates.fallback(topic, actualLimit);
         }
+        return generateFromText(topic, content, formatType, pageLimit, user, progress);
     }
 
-    private String cleanAIResponse(String content) {
-        if (content == null) return "";
-        content = content.replaceAll("(?i)^.*?Here is the report:?\\s*", "");
-        content = content.replaceAll("(?i)^.*?I can provide.*?report.*?\\s*", "");
-        content = content.replaceAll("(?i)^.*?I'll generate.*?\\s*", "");
-        content = content.replaceAll("(?m)^Page \\d+\\s*$", "");
-        content = content.replaceAll("\\*\\*", "");
-        content = content.replaceAll("\\n{3,}", "\n\n");
-        content = content.replaceAll("\\[IMAGE:.*?\\]", "");
-        content = content.replaceAll(".*?illustrates.*?\\[IMAGE.*", "");
-        return content.trim();
+    // ✅ Quota-downgraded content is cached under the page count it was generated for
+    private static int cachedPages(TokenBudgetPlanner.Grant grant, int actualLimit) {
+        return grant.isDowngraded() ? grant.plan().pageLimit() : actualLimit;
     }
 
-    private String generateFallbackContent(String topic, int pageLimit) {
-        StringBuilder content = new StringBuilder();
-
-        content.append("## Introduction\n\n");
-        content.append("### Background and Context\n\n");
-        content.append("This comprehensive report provides an in-depth analysis of ").append(topic).append(". ");
-        content.append("The topic has gained significant attention in recent years and represents an important area of study. ");
-        content.append("Through detailed examination and research, this report aims to provide valuable insights. ");
-        content.append("The field has evolved considerably over time, with numerous developments shaping current understanding. ");
-        content.append("This study examines various aspects and dimensions of ").append(topic).append(" in contemporary context.\n\n");
-
-        content.append("### Scope of the Study\n\n");
-        content.append("This study comprehensively examines ").append(topic).append(" from multiple perspectives. ");
-        content.append("The scope includes historical development, current practices, and future directions. ");
-        content.append("Various methodological approaches are employed to ensure thorough analysis.\n\n");
-
-        content.append("### Significance\n\n");
-        content.append("Understanding ").append(topic).append(" is crucial for several reasons. ");
-        content.append("The implications extend across academic, practical, and societal domains. ");
-        content.append("This research contributes valuable knowledge to the existing body of literature.\n\n");
-
-        content.append("## Literature Review\n\n");
-        content.append("### Theoretical Framework\n\n");
-        content.append("The theoretical foundation of ").append(topic).append(" draws from established frameworks. ");
-        content.append("Multiple theoretical perspectives provide comprehensive understanding. ");
-        content.append("These frameworks guide the analysis and interpretation of findings.\n\n");
-
-        content.append("## Methodology\n\n");
-        content.append("### Research Design\n\n");
-        content.append("This study employs a systematic research methodology. ");
-        content.append("The approach ensures rigorous analysis and valid conclusions. ");
-        content.append("Multiple data sources enhance the reliability of findings.\n\n");
-
-        content.append("## Results and Discussion\n\n");
-        content.append("### Key Findings\n\n");
-        content.append("The research reveals important insights about ").append(topic).append(". ");
-        content.append("These findings contribute significantly to current understanding. ");
-        content.append("The implications are discussed in detail throughout this section.\n\n");
-
-        content.append("## Conclusion\n\n");
-        content.append("This report has provided a comprehensive examination of ").append(topic).append(". ");
-        content.append("The findings and analysis presented offer valuable perspectives on the subject. ");
-        content.append("Key insights have been drawn from extensive research and analysis. ");
-        content.append("The implications of these findings extend across various domains. ");
-        content.append("Further research is recommended to explore additional dimensions and deepen understanding.\n\n");
-
-        content.append("The study has successfully addressed the primary objectives and research questions. ");
-        content.append("Multiple theoretical frameworks and methodological approaches were employed to ensure comprehensive analysis. ");
-        content.append("The research contributes meaningful insights to the existing body of knowledge in this field. ");
-        content.append("Practical applications of these findings can benefit practitioners and policymakers alike. ");
-        content.append("The study also identifies several areas where additional investigation would be valuable.\n\n");
-
-        content.append("Looking forward, the field of ").append(topic).append(" continues to evolve rapidly. ");
-        content.append("Emerging technologies and changing circumstances create both opportunities and challenges. ");
-        content.append("Stakeholders must remain adaptable and informed to navigate these dynamic conditions effectively. ");
-        content.append("Continuous learning and professional development are essential for staying current. ");
-        content.append("Collaboration across disciplines and sectors will be increasingly important for addressing complex issues.\n\n");
-
-        content.append("In conclusion, this comprehensive study has illuminated key aspects of ").append(topic).append(". ");
-        content.append("The research methodology employed was rigorous and appropriate for the objectives pursued. ");
-        content.append("Results provide actionable insights that can inform decision-making and strategic planning. ");
-        content.append("While limitations exist, the findings represent a significant contribution to understanding. ");
-        content.append("Future scholarship should build upon this foundation to advance knowledge further.\n\n");
-
-        content.append("## References\n\n");
-        for (int i = 1; i <= 15; i++) {
-            content.append(i).append(". Author, A. (2024). Research on ").append(topic)
-                    .append(". International Journal of Studies, 15(").append(i).append("), 123-145.\n");
+    private String fetchBudgetedContent(String topic, int actualLimit, Consumer<ReportStage> progress)
+            throws InterruptedException {
+        try (TokenBudgetPlanner.Grant grant = tokenBudget.acquire(actualLimit)) {
+            return grant != null ? fetchFreshContent(topic, grant, progress) : null;
         }
+    }
 
-        return content.toString();
+    /**
+     * @return cleaned AI content, or {@code null} when generation failed and the fallback applies
+     */
+    private String fetchFreshContent(String topic, TokenBudgetPlanner.Grant grant, Consumer<ReportStage> progress) {
+        return grant.plan().sections()
+                ? fetchSectionsFromAI(topic, grant, progress)
+                : fetchContentFromAI(topic, grant, progress);
     }
 
-    private void generateWordReport(String topic, String content, String fileName, Integer pageLimit) throws Exception {
-        XWPFDocument document = new XWPFDocument();
-        addPageBorders(document);
-
-        // ✅ Title Page
-        XWPFParagraph title = document.createParagraph();
-        title.setAlignment(ParagraphAlignment.CENTER);
-        title.setSpacingAfter(300); // ✅ REDUCED from 400
-        XWPFRun titleRun = title.createRun();
-        titleRun.setBold(true);
-        titleRun.setFontSize(18);
-        titleRun.setFontFamily("Times New Roman");
-        titleRun.setText(topic.toUpperCase());
-
-        content = adjustContentForPageLimit(content, pageLimit);
-        XWPFNumbering numbering = document.createNumbering();
-        BigInteger abstractNumId = numbering.addAbstractNum(createNumberingStyle(document));
-        BigInteger numId = numbering.addNum(abstractNumId);
-
-        boolean isInConclusion = false;
-        boolean isInReferences = false;
-        int sectionCount = 0;
-
-        for (String line : content.split("\n")) {
-            if (line.trim().isEmpty()) continue;
-
-            if (line.startsWith("## ") && line.toLowerCase().contains("conclusion")) {
-                isInConclusion = true;
-                isInReferences = false;
+    /**
+     * Streams the AI response and renders each section as soon as it is complete, so the
+     * documents are nearly done when the last token arrives. The files are written as
+     * {@link ReportStore.Upload}s and published under their render-cache name once the content is known.
+     * Incomplete AI content falls back to {@link ReportTemplates#fallback}, like the blocking path.
+     * {@code flight} is completed once the files are published, so coalesced requests reuse them.
+     */
+    private GeneratedReport generateFromAIStream(String topic, String formatType, Integer pageLimit, User user,
+                                                 TokenBudgetPlanner.Grant grant, SingleFlight.Flight<String> flight,
+                                                 Consumer<ReportStage> progress) throws Exception {
+        int actualLimit = pageLimit != null ? pageLimit : 15;
+        TokenBudgetPlanner.Plan plan = grant.plan();
+        boolean both = formatType.equalsIgnoreCase(FORMAT_BOTH);
+        String primaryFormat = both ? "docx" : formatType;
+
+        String baseName = newBaseName(topic);
+        String content;
+        String fileName;
+        String pdfFileName;
+        // ✅ Closing an upload that was not published discards it
+        try (ReportStore.Upload primaryUpload = reportStore.create();
+             ReportStore.Upload pdfUpload = both ? reportStore.create() : null) {
+            boolean complete;
+            try (OutputStream primaryOut = new BufferedOutputStream(primaryUpload.out(), 64 * 1024);
+                 OutputStream pdfOut = pdfUpload != null
+                         ? new BufferedOutputStream(pdfUpload.out(), 64 * 1024)
+                         : OutputStream.nullOutputStream()) {
+
+                // ✅ POI/iText run on the render pool, one queue per format, never on the (virtual) job thread
+                List<RenderPoolSession> sessions = new ArrayList<>(2);
+                try {
+                    sessions.add(new RenderPoolSession(renderExecutor, primaryFormat.equalsIgnoreCase("docx")
+                            ? () -> wordReportRenderer.open(topic, primaryOut)
+                            : () -> pdfReportRenderer.open(topic, primaryOut)));
+                    if (both) {
+                        sessions.add(new RenderPoolSession(renderExecutor, () -> pdfReportRenderer.open(topic, pdfOut)));
+                    }
+                    StreamingReportPipeline pipeline = new StreamingReportPipeline(pageLimit, sessions);
+
+                    System.out.println("🔄 Streaming AI content for: " + topic);
+                    progress.accept(ReportStage.PROMPTING);
+                    boolean[] firstDelta = {true};
+                    boolean received = aiService.generateContentStreaming(reportTemplates.prompt(topic, plan.pageLimit()),
+                            plan.maxTokens(), grant, delta -> {
+                        if (firstDelta[0]) {
+                            firstDelta[0] = false;
+                            progress.accept(ReportStage.RENDERING);
+                        }
+                        pipeline.accept(delta);
+                    });
+
+                    content = pipeline.finishContent();
+                    complete = received && isCompleteReport(content, plan.pageLimit());
+                    if (complete) {
+                        pipeline.finishDocuments();
+                    }
+                } finally {
+                    // ✅ The streams close next, so no pool step may still be writing to them
+                    for (RenderPoolSession session : sessions) {
+                        session.abandon();
+                    }
+                }
             }
 
-            if (line.startsWith("## ") && line.toLowerCase().contains("reference")) {
-                isInConclusion = false;
-                isInReferences = true;
+            if (!complete) {
+                primaryUpload.close();
+                if (pdfUpload != null) pdfUpload.close();
+                flight.complete(null);
+                System.err.println("⚠️ Streamed AI content incomplete (length: " + content.length() + "), using fallback");
+                return generateFromText(topic, reportTemplates.fallback(topic, actualLimit), formatType, pageLimit, user, progress);
             }
+            System.out.println("✅ Streamed content length: " + content.length() + " characters");
+            contentCache.put(topic, cachedPages(grant, actualLimit), content);
+
+            // ✅ Same names as the blocking path would have produced for this content
+            String primaryKey = renderCache.keyFor(topic, content, primaryFormat, pageLimit);
+            String pdfKey = both ? renderCache.keyFor(topic, content, "pdf", pageLimit) : null;
+            fileName = primaryKey != null
+                    ? renderCache.fileNameFor(topic, primaryKey, primaryFormat)
+                    : baseName + "." + primaryFormat;
+            pdfFileName = !both ? null : pdfKey != null ? renderCache.fileNameFor(topic, pdfKey, "pdf") : baseName + ".pdf";
+
+            primaryUpload.publish(fileName);
+            if (pdfUpload != null) {
+                pdfUpload.publish(pdfFileName);
+            }
+        }
+        System.out.println("✅ Streamed report saved: " + fileName + (both ? ", " + pdfFileName : ""));
+        // ✅ Followers asking for the same format now hit the render cache
+        flight.complete(content);
 
-            // ✅ Main Section Headings - BOLD & HIGHLIGHTED with REDUCED spacing
-            if (line.startsWith("## ")) {
-                String sectionName = line.replace("## ", "").trim();
-                sectionCount++;
-
-                // ✅ Page break only for Conclusion and References
-                if (sectionName.toLowerCase().contains("conclusion") ||
-                        sectionName.toLowerCase().contains("reference")) {
-                    XWPFParagraph pageBreakPara = document.createParagraph();
-                    XWPFRun pageBreakRun = pageBreakPara.createRun();
-                    pageBreakRun.addBreak(BreakType.PAGE);
-                }
-
-                XWPFParagraph heading = document.createParagraph();
-                heading.setSpacingBefore(sectionCount == 1 ? 100 : 300); // ✅ Visible spacing
-                heading.setSpacingAfter(180); // ✅ Clear gap after headings
-                heading.setAlignment(ParagraphAlignment.LEFT);
+        saveReport(topic, formatType, fileName, pdfFileName, pageLimit, user);
+        return new GeneratedReport(fileName, pdfFileName);
+    }
 
-                // ✅ Add extra line before major sections for better separation
-                if (sectionCount > 1) {
-                    XWPFParagraph spacer = document.createParagraph();
-                    spacer.setSpacingAfter(0);
-                }
+    // ✅ Shorter than half the asked-for length (8000 characters at most), or without a conclusion: a failed generation
+    private static boolean isCompleteReport(String content, int pageLimit) {
+        return content.contains("## Conclusion")
+                && content.length() >= Math.min(8000, pageLimit * ReportTemplates.PROMPT_CHARACTERS_PER_PAGE / 2);
+    }
 
-                XWPFRun run = heading.createRun();
-                run.setFontFamily("Times New Roman");
-                run.setFontSize(15);
-                run.setBold(true);
-                run.setText("● " + sectionName);
-                continue;
+    // ✅ Long reports: one prompt per section, so none of them hits max_tokens
+    private String fetchSectionsFromAI(String topic, TokenBudgetPlanner.Grant grant, Consumer<ReportStage> progress) {
+        int actualLimit = grant.plan().pageLimit();
+        try {
+            System.out.println("🔄 Requesting AI content section by section for: " + topic);
+            progress.accept(ReportStage.PROMPTING);
+            String content = sectionGenerator.generate(topic, actualLimit, grant);
+            progress.accept(ReportStage.AI_RECEIVED);
+
+            if (content == null || !isCompleteReport(content, actualLimit)) {
+                System.err.println("⚠️ Sectioned AI content incomplete (length: "
+                        + (content != null ? content.length() : 0) + "), using fallback");
+                return null;
             }
 
-            // ✅ Subsection Headings - Less prominent, REDUCED spacing
-            if (line.startsWith("### ")) {
-                if (isInConclusion) continue;
-
-                String subsectionName = line.replace("### ", "").trim();
+            System.out.println("✅ Generated content length: " + content.length() + " characters");
+            return content;
 
-                XWPFParagraph subheading = document.createParagraph();
-                subheading.setSpacingBefore(150); // ✅ Good spacing
-                subheading.setSpacingAfter(120); // ✅ Clear gap
-                subheading.setAlignment(ParagraphAlignment.LEFT);
-
-                XWPFRun run = subheading.createRun();
-                run.setFontFamily("Times New Roman");
-                run.setFontSize(13);
-                run.setBold(true);
-                run.setText("   ○ " + subsectionName);
-                continue;
-            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
 
-            // ✅ References (numbered list)
-            if (line.matches("^[0-9]+\\..*") && isInReferences) {
-                XWPFParagraph para = document.createParagraph();
-                para.setNumID(numId);
-                para.setSpacingAfter(80); // ✅ REDUCED from 90
+    private String fetchContentFromAI(String topic, TokenBudgetPlanner.Grant grant, Consumer<ReportStage> progress) {
+        TokenBudgetPlanner.Plan plan = grant.plan();
+        String prompt = reportTemplates.prompt(topic, plan.pageLimit());
 
-                CTPPr pPr = para.getCTP().isSetPPr() ? para.getCTP().getPPr() : para.getCTP().addNewPPr();
-                pPr.addNewWidowControl().setVal(true);
+        try {
+            System.out.println("🔄 Requesting AI content for: " + topic);
+            progress.accept(ReportStage.PROMPTING);
+            String aiContent = aiService.generateContent(prompt, plan.maxTokens(), grant);
+            progress.accept(ReportStage.AI_RECEIVED);
 
-                XWPFRun run = para.createRun();
-                run.setFontFamily("Times New Roman");
-                run.setFontSize(12);
-                run.setText(line.replaceFirst("^[0-9]+\\.\\s*", ""));
-                continue;
+            if (aiContent == null || aiContent.trim().isEmpty()) {
+                System.err.println("❌ AI returned empty content");
+                return null;
             }
 
-            // ✅ Regular paragraphs - Better spacing
-            XWPFParagraph para = document.createParagraph();
-            para.setAlignment(ParagraphAlignment.BOTH);
-            para.setSpacingBetween(1.5); // ✅ Increased line spacing
-            para.setSpacingAfter(120); // ✅ More space between paragraphs
+            progress.accept(ReportStage.CLEANING);
+            aiContent = ReportContentCleaner.clean(aiContent);
 
-            if (!isInReferences) {
-                para.setIndentationFirstLine(360);
+            if (!isCompleteReport(aiContent, plan.pageLimit())) {
+                System.err.println("⚠️ AI content incomplete (length: " + aiContent.length() + "), using fallback");
+                return null;
             }
 
-            XWPFRun run = para.createRun();
-            run.setFontFamily("Times New Roman");
-            run.setFontSize(12);
-            run.setText(line.trim());
-        }
+            System.out.println("✅ Generated content length: " + aiContent.length() + " characters");
+            return aiContent;
 
-        Path filePath = Path.of("reports/" + fileName);
-        Files.createDirectories(filePath.getParent());
-        try (FileOutputStream out = new FileOutputStream(filePath.toFile())) {
-            document.write(out);
+        } catch (Exception e) {
+            System.err.println("❌ Exception in fetchContentFromAI: " + e.getMessage());
+            return null;
         }
-        document.close();
+    }
 
-        System.out.println("✅ Word report saved: " + filePath.toAbsolutePath());
+    // ✅ DOCX and PDF render side by side on the render pool from the same outline
+    private interface RenderTask {
+        void run() throws Exception;
     }
 
-    private void addPageBorders(XWPFDocument document) {
-        CTSectPr sectPr = document.getDocument().getBody().isSetSectPr()
-                ? document.getDocument().getBody().getSectPr()
-                : document.getDocument().getBody().addNewSectPr();
+    /**
+     * With {@code spring.threads.virtual.enabled} the request (or job) thread is virtual.
+     * CPU-bound POI/iText work would then hog one of the few carrier threads and pin it
+     * inside their {@code synchronized} sections, so it is handed to the platform render pool.
+     */
+    private void renderOnPlatformThread(RenderTask task) throws Exception {
+        if (!Thread.currentThread().isVirtual()) {
+            task.run();
+            return;
+        }
 
-        CTPageBorders pageBorders = sectPr.isSetPgBorders()
-                ? sectPr.getPgBorders()
-                : sectPr.addNewPgBorders();
+        try {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, renderExecutor).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
 
-        pageBorders.setDisplay(STPageBorderDisplay.ALL_PAGES);
-        pageBorders.setOffsetFrom(STPageBorderOffset.PAGE);
+    private void generateBothReports(String topic, ReportOutline outline, String docxFileName, String pdfFileName) throws Exception {
+        CompletableFuture<Void> docx = CompletableFuture.runAsync(() -> {
+            try {
+                generateWordReport(topic, outline, docxFileName);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, renderExecutor);
+        CompletableFuture<Void> pdf = CompletableFuture.runAsync(() -> {
+            try {
+                generatePdfReport(topic, outline, pdfFileName);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, renderExecutor);
 
-        configureBorder(pageBorders.isSetTop() ? pageBorders.getTop() : pageBorders.addNewTop());
-        configureBorder(pageBorders.isSetBottom() ? pageBorders.getBottom() : pageBorders.addNewBottom());
-        configureBorder(pageBorders.isSetLeft() ? pageBorders.getLeft() : pageBorders.addNewLeft());
-        configureBorder(pageBorders.isSetRight() ? pageBorders.getRight() : pageBorders.addNewRight());
+        try {
+            CompletableFuture.allOf(docx, pdf).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
     }
 
-    private void configureBorder(CTBorder border) {
-        border.setVal(STBorder.SINGLE);
-        border.setSz(BigInteger.valueOf(12));
-        border.setSpace(BigInteger.valueOf(24));
-        border.setColor("000000");
+    private void generateWordReport(String topic, ReportOutline outline, String fileName) throws Exception {
+        try (ReportStore.Upload upload = reportStore.create()) {
+            try (OutputStream out = new BufferedOutputStream(upload.out())) {
+                wordReportRenderer.render(topic, outline, out);
+            }
+            upload.publish(fileName);
+        }
+
+        System.out.println("✅ Word report saved: " + fileName);
     }
 
-    private String adjustContentForPageLimit(String content, Integer pageLimit) {
+    // ✅ Package-private so the JMH benchmarks can reach it
+    static String adjustContentForPageLimit(String content, Integer pageLimit) {
         if (pageLimit == null || pageLimit <= 0) return content;
 
-        int targetCharacters = pageLimit * 4500;
+        int targetCharacters = pageLimit * MAX_CHARACTERS_PER_PAGE;
 
         if (content.length() <= targetCharacters) return content;
 
@@ -411,120 +592,63 @@ public class ReportGenerator {
         return truncated;
     }
 
-    private XWPFAbstractNum createNumberingStyle(XWPFDocument document) throws Exception {
-        CTAbstractNum ctAbstractNum = CTAbstractNum.Factory.newInstance();
-        ctAbstractNum.setAbstractNumId(BigInteger.valueOf(0));
-
-        CTLvl level = ctAbstractNum.addNewLvl();
-        level.setIlvl(BigInteger.ZERO);
-        level.addNewNumFmt().setVal(STNumberFormat.DECIMAL);
-        level.addNewLvlText().setVal("%1.");
-        level.addNewStart().setVal(BigInteger.ONE);
-        level.addNewPPr().addNewInd().setLeft(BigInteger.valueOf(720));
-
-        return new XWPFAbstractNum(ctAbstractNum, document.getNumbering());
-    }
-
-    private void generatePdfReport(String topic, String content, String fileName, Integer pageLimit) throws Exception {
-        Path filePath = Path.of("reports/" + fileName);
-        Files.createDirectories(filePath.getParent());
-
-        com.itextpdf.text.Document pdfDoc = new com.itextpdf.text.Document();
-        com.itextpdf.text.pdf.PdfWriter writer =
-                com.itextpdf.text.pdf.PdfWriter.getInstance(pdfDoc, new FileOutputStream(filePath.toFile()));
-
-        writer.setPageEvent(new com.itextpdf.text.pdf.PdfPageEventHelper() {
-            @Override
-            public void onEndPage(com.itextpdf.text.pdf.PdfWriter writer, com.itextpdf.text.Document document) {
-                com.itextpdf.text.pdf.PdfContentByte cb = writer.getDirectContent();
-                cb.rectangle(
-                        document.getPageSize().getLeft() + 20,
-                        document.getPageSize().getBottom() + 20,
-                        document.getPageSize().getRight() - 40,
-                        document.getPageSize().getTop() - 40
-                );
-                cb.setLineWidth(2);
-                cb.stroke();
-            }
-        });
-
-        pdfDoc.open();
-        content = adjustContentForPageLimit(content, pageLimit);
-
-        com.itextpdf.text.Font titleFont =
-                new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.TIMES_ROMAN, 18, com.itextpdf.text.Font.BOLD);
-        com.itextpdf.text.Font mainHeadingFont =
-                new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.TIMES_ROMAN, 14, com.itextpdf.text.Font.BOLD); // ✅ REDUCED from 15
-        com.itextpdf.text.Font subHeadingFont =
-                new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.TIMES_ROMAN, 12, com.itextpdf.text.Font.BOLD); // ✅ REDUCED from 13
-        com.itextpdf.text.Font contentFont =
-                new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.TIMES_ROMAN, 12);
-
-        com.itextpdf.text.Paragraph titlePara = new com.itextpdf.text.Paragraph(topic.toUpperCase(), titleFont);
-        titlePara.setAlignment(com.itextpdf.text.Element.ALIGN_CENTER);
-        titlePara.setSpacingAfter(25); // ✅ REDUCED from 35
-        pdfDoc.add(titlePara);
-
-        boolean isInConclusion = false;
-        boolean isInReferences = false;
-        int sectionCount = 0;
-
-        for (String line : content.split("\n")) {
-            if (line.trim().isEmpty()) {
-                pdfDoc.add(new com.itextpdf.text.Paragraph("\n"));
-                continue;
+    private void generatePdfReport(String topic, ReportOutline outline, String fileName) throws Exception {
+        long bytesWritten;
+        try (ReportStore.Upload upload = reportStore.create()) {
+            try (OutputStream out = new BufferedOutputStream(upload.out(), 64 * 1024)) {
+                bytesWritten = pdfReportRenderer.render(topic, outline, out);
             }
+            upload.publish(fileName);
+        }
 
-            if (line.startsWith("## ") && line.toLowerCase().contains("conclusion")) {
-                isInConclusion = true;
-                isInReferences = false;
-            }
+        System.out.println("✅ PDF report saved: " + fileName + " (" + bytesWritten + " bytes)");
+    }
 
-            if (line.startsWith("## ") && line.toLowerCase().contains("reference")) {
-                isInConclusion = false;
-                isInReferences = true;
-            }
+    // ✅ Mirrors every byte sent to the client into the stored copy; the client always wins
+    private static final class TeeOutputStream extends FilterOutputStream {
 
-            if (line.startsWith("## ")) {
-                String sectionName = line.replace("## ", "").trim();
-                sectionCount++;
+        private final OutputStream copy;
+        private boolean copyFailed;
 
-                // ✅ Page break only for Conclusion and References
-                if (sectionName.toLowerCase().contains("conclusion") ||
-                        sectionName.toLowerCase().contains("reference")) {
-                    pdfDoc.newPage();
-                }
+        TeeOutputStream(OutputStream out, OutputStream copy) {
+            super(out);
+            this.copy = copy;
+        }
 
-                com.itextpdf.text.Paragraph heading =
-                        new com.itextpdf.text.Paragraph("● " + sectionName, mainHeadingFont);
-                heading.setSpacingBefore(sectionCount == 1 ? 0 : 10); // ✅ REDUCED from 18
-                heading.setSpacingAfter(10); // ✅ REDUCED from 14
-                heading.setKeepTogether(true);
-                pdfDoc.add(heading);
-            }
-            else if (line.startsWith("### ")) {
-                if (isInConclusion) continue;
-
-                String subsectionName = line.replace("### ", "").trim();
-                com.itextpdf.text.Paragraph subheading =
-                        new com.itextpdf.text.Paragraph("   ○ " + subsectionName, subHeadingFont);
-                subheading.setSpacingBefore(8); // ✅ REDUCED from 13
-                subheading.setSpacingAfter(7); // ✅ REDUCED from 10
-                subheading.setKeepTogether(true);
-                pdfDoc.add(subheading);
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (copyFailed) return;
+            try {
+                copy.write(b);
+            } catch (IOException e) {
+                copyFailed = true;
             }
-            else {
-                com.itextpdf.text.Paragraph para = new com.itextpdf.text.Paragraph(line.trim(), contentFont);
-                para.setAlignment(com.itextpdf.text.Element.ALIGN_JUSTIFIED);
-                para.setSpacingAfter(10); // ✅ REDUCED from 12
-                if (!isInReferences) {
-                    para.setFirstLineIndent(20);
-                }
-                pdfDoc.add(para);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (copyFailed) return;
+            try {
+                copy.write(b, off, len);
+            } catch (IOException e) {
+                copyFailed = true;
             }
         }
 
-        pdfDoc.close();
-        System.out.println("✅ PDF report saved: " + filePath.toAbsolutePath());
+        /**
+         * Flushes and closes the copy, leaving the client stream open.
+         *
+         * @return whether every byte reached the copy
+         */
+        boolean closeCopy() {
+            try {
+                copy.close();
+            } catch (IOException e) {
+                copyFailed = true;
+            }
+            return !copyFailed;
+        }
     }
-}
\ No newline at end of file
+}
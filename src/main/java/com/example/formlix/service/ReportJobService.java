@@ -0,0 +1,159 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.ReportJob;
+import com.example.formlix.model.ReportStage;
+import com.example.formlix.model.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs report generations as background jobs, queued per user by {@link FairReportScheduler}.
+ * <p>
+ * Callers get a {@link ReportJob} right away and follow it by polling or over Server-Sent
+ * Events: every stage change is pushed as a {@code stage} event carrying the whole job, and
+ * the stream completes once the job is {@code SAVED} or {@code FAILED}.
+ * Jobs live in memory only; finished ones are dropped after {@code retention-minutes}.
+ */
+@Service
+public class ReportJobService {
+
+    private static final long SSE_TIMEOUT_MS = 10 * 60 * 1000L;
+
+    private final ReportGenerator reportGenerator;
+    private final FairReportScheduler scheduler;
+    private final long retentionMinutes;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+    public ReportJobService(ReportGenerator reportGenerator,
+                            FairReportScheduler scheduler,
+                            @Value("${formlix.report.jobs.retention-minutes:60}") long retentionMinutes) {
+        this.reportGenerator = reportGenerator;
+        this.scheduler = scheduler;
+        this.retentionMinutes = retentionMinutes;
+    }
+
+    /**
+     * @param clientAddress queue key for callers without a user
+     * @throws org.springframework.core.task.TaskRejectedException when the caller's queue or the job queue is full
+     */
+    public ReportJob submit(String topic, String formatType, Integer pageLimit, boolean bypassCache, User user,
+                            String clientAddress) {
+        pruneFinishedJobs();
+
+        ReportJob job = new ReportJob(user != null ? user.getEmail() : null, topic, formatType, pageLimit);
+        jobs.put(job.getId(), job);
+        try {
+            scheduler.submit(FairReportScheduler.queueKeyFor(user, clientAddress), pageLimit != null ? pageLimit : 15,
+                    () -> {
+                        run(job, bypassCache, user);
+                        return null;
+                    })
+                    .exceptionally(e -> {
+                        job.fail("Error generating report: " + e.getMessage());
+                        publish(job);
+                        return null;
+                    });
+        } catch (RuntimeException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+
+        System.out.println("📥 Report job queued: " + job.getId() + " (" + topic + ")");
+        return job;
+    }
+
+    /**
+     * @return the job, or {@code null} when it does not exist or belongs to someone else
+     */
+    public ReportJob find(String id, String ownerEmail) {
+        ReportJob job = jobs.get(id);
+        if (job == null || !Objects.equals(job.getOwnerEmail(), ownerEmail)) {
+            return null;
+        }
+        return job;
+    }
+
+    public SseEmitter subscribe(ReportJob job) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        if (job.getStage().isFinal()) {
+            send(emitter, job);
+            return emitter;
+        }
+
+        List<SseEmitter> listeners = emitters.computeIfAbsent(job.getId(), id -> new CopyOnWriteArrayList<>());
+        listeners.add(emitter);
+        emitter.onCompletion(() -> listeners.remove(emitter));
+        emitter.onTimeout(() -> listeners.remove(emitter));
+        emitter.onError(e -> listeners.remove(emitter));
+
+        // ✅ Current state first, so late subscribers (and finished jobs) still get an event
+        send(emitter, job);
+        return emitter;
+    }
+
+    private void run(ReportJob job, boolean bypassCache, User user) {
+        try {
+            ReportGenerator.GeneratedReport report = reportGenerator.generateFromTopic(
+                    job.getTopic(), job.getFormatType(), job.getPageLimit(), user, bypassCache,
+                    stage -> update(job, stage));
+
+            job.complete(report.message(), report.fileNames().stream()
+                    .map(fileName -> "/api/reports/download/" + fileName)
+                    .toList());
+            System.out.println("✅ Report job finished: " + job.getId());
+        } catch (Exception e) {
+            System.err.println("❌ Report job failed: " + job.getId() + ": " + e.getMessage());
+            job.fail("Error generating report: " + e.getMessage());
+        }
+        publish(job);
+    }
+
+    private void update(ReportJob job, ReportStage stage) {
+        job.moveTo(stage);
+        publish(job);
+    }
+
+    private void publish(ReportJob job) {
+        List<SseEmitter> listeners = job.getStage().isFinal()
+                ? emitters.remove(job.getId())
+                : emitters.get(job.getId());
+        if (listeners == null) return;
+
+        for (SseEmitter emitter : listeners) {
+            send(emitter, job);
+        }
+    }
+
+    private static void send(SseEmitter emitter, ReportJob job) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("stage")
+                    .id(job.getStage().name())
+                    .data(job, MediaType.APPLICATION_JSON));
+            if (job.getStage().isFinal()) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // ✅ Client went away; the job keeps running and can still be polled
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void pruneFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.getStage().isFinal() && job.getUpdatedAt().isBefore(cutoff));
+        emitters.keySet().retainAll(jobs.keySet());
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.ReportOutline;
+
+/**
+ * A document being rendered one {@link ReportOutline.Section} at a time, so rendering can
+ * start before the whole outline is known. Sections must be added in order.
+ */
+public interface ReportRenderSession {
+
+    void addSection(ReportOutline.Section section) throws Exception;
+
+    /**
+     * Completes the document. The caller still owns (and closes) the output stream.
+     */
+    void finish() throws Exception;
+
+    /**
+     * Lets a session that renders elsewhere start completing the document before {@link #finish()}
+     * is called, so several sessions can complete side by side.
+     */
+    default void startFinish() throws Exception {
+    }
+}
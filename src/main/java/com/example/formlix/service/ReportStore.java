@@ -0,0 +1,134 @@
+package com.example.formlix.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Where rendered report files live, addressed by their file name alone (that is what the
+ * {@code Report} rows and download URLs carry).
+ * <p>
+ * A file is written through an {@link Upload}: the bytes go to a temporary location and only
+ * {@link Upload#publish} makes them visible, in one atomic step, so a download never sees a
+ * half-written report and two renders of the same name simply replace each other.
+ * <p>
+ * Implementations spread files over {@link #shardOf hash shards} instead of one flat directory.
+ * {@code formlix.storage.type} picks {@link LocalReportStore} ({@code local}, the default) or
+ * {@link S3ReportStore} ({@code s3}, any S3-compatible service such as MinIO, for several instances).
+ */
+public interface ReportStore {
+
+    /**
+     * @param etag strong validator supplied by the store, or {@code null} when it has none
+     */
+    record StoredReport(String fileName, long size, long lastModified, String etag) {
+    }
+
+    /**
+     * Published (as a Spring application event) once {@link #delete} removed a report, so
+     * in-memory state about it, such as download validators, goes with it.
+     */
+    record Deleted(String fileName) {
+    }
+
+    /**
+     * A file being written. Closing it without {@link #publish} discards the bytes.
+     */
+    interface Upload extends Closeable {
+
+        /**
+         * The stream to write the report to; the caller closes it before publishing.
+         */
+        OutputStream out() throws IOException;
+
+        /**
+         * Atomically makes the written bytes available as {@code fileName}, replacing any file of that name.
+         */
+        void publish(String fileName) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    Upload create() throws IOException;
+
+    /**
+     * @throws java.nio.file.NoSuchFileException when there is no such report
+     */
+    StoredReport stat(String fileName) throws IOException;
+
+    /**
+     * {@code length} bytes of the report from {@code offset}.
+     *
+     * @throws java.nio.file.NoSuchFileException when there is no such report
+     * @throws IllegalArgumentException          when the range is empty or negative
+     */
+    InputStream open(String fileName, long offset, long length) throws IOException;
+
+    /**
+     * The report as a file on this machine, for zero-copy transfer; {@code null} for remote stores.
+     */
+    Path localPath(String fileName);
+
+    /**
+     * Removes the report, if it exists, and publishes {@link Deleted}.
+     */
+    void delete(String fileName) throws IOException;
+
+    List<StoredReport> list() throws IOException;
+
+    /**
+     * Where the files are, for log messages.
+     */
+    String describe();
+
+    /**
+     * {@code "ab/cd"}: two levels of 256 directories (or key prefixes) from the SHA-256 of the
+     * name, so no directory grows past a few hundred entries until there are millions of reports.
+     */
+    static String shardOf(String fileName) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("SHA-256").digest(fileName.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        HexFormat hex = HexFormat.of();
+        return hex.toHexDigits(hash[0]) + "/" + hex.toHexDigits(hash[1]);
+    }
+
+    /**
+     * A plain file name: no separators, and not hidden (temporary files start with a dot).
+     */
+    static boolean isValidName(String fileName) {
+        return fileName != null && !fileName.isBlank() && !fileName.startsWith(".")
+                && fileName.indexOf('/') < 0 && fileName.indexOf('\\') < 0 && fileName.indexOf('\0') < 0;
+    }
+
+    static void requireValidRange(String fileName, long offset, long length) {
+        if (offset < 0 || length <= 0) {
+            throw new IllegalArgumentException("Invalid range of " + fileName + ": " + length + " bytes from " + offset);
+        }
+    }
+
+    static String requireValidName(String fileName) {
+        if (!isValidName(fileName)) {
+            throw new IllegalArgumentException("Invalid report file name: " + fileName);
+        }
+        return fileName;
+    }
+
+    /**
+     * The topic as it appears in file names: letters, digits, {@code -} and {@code _} only.
+     */
+    static String fileNamePart(String topic) {
+        return topic.trim().replaceAll("[^\\p{L}\\p{N}_-]", "_");
+    }
+}
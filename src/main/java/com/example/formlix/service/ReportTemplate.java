@@ -0,0 +1,114 @@
+package com.example.formlix.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A text template compiled once into literal runs and {@code {{slot}}} references.
+ * <p>
+ * Rendering appends the literals and the slot values straight to the caller's builder, so
+ * filling a template creates no intermediate strings. Known slots: {@code {{topic}}},
+ * {@code {{pages}}}, {@code {{characters}}} and {@code {{n}}} (the item number in lists).
+ */
+final class ReportTemplate {
+
+    enum Slot {
+        TOPIC, PAGES, CHARACTERS, N
+    }
+
+    /**
+     * Values for one rendering; {@code n} is only meaningful inside a list.
+     */
+    record Values(CharSequence topic, int pages, int characters, int n) {
+
+        Values withN(int n) {
+            return new Values(topic, pages, characters, n);
+        }
+    }
+
+    // ✅ Each entry is either a String literal or a Slot
+    private final Object[] segments;
+    private final int literalLength;
+    private final int topicSlots;
+    private final int numberSlots;
+
+    private ReportTemplate(Object[] segments, int literalLength, int topicSlots, int numberSlots) {
+        this.segments = segments;
+        this.literalLength = literalLength;
+        this.topicSlots = topicSlots;
+        this.numberSlots = numberSlots;
+    }
+
+    static ReportTemplate compile(String source) {
+        List<Object> segments = new ArrayList<>();
+        int literalLength = 0;
+        int topicSlots = 0;
+        int numberSlots = 0;
+
+        int position = 0;
+        while (position < source.length()) {
+            int open = source.indexOf("{{", position);
+            if (open < 0) {
+                open = source.length();
+            }
+            if (open > position) {
+                segments.add(source.substring(position, open));
+                literalLength += open - position;
+            }
+            if (open == source.length()) break;
+
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed slot at offset " + open);
+            }
+            Slot slot = slotNamed(source.substring(open + 2, close).trim());
+            segments.add(slot);
+            if (slot == Slot.TOPIC) {
+                topicSlots++;
+            } else {
+                numberSlots++;
+            }
+            position = close + 2;
+        }
+        return new ReportTemplate(segments.toArray(), literalLength, topicSlots, numberSlots);
+    }
+
+    private static Slot slotNamed(String name) {
+        return switch (name) {
+            case "topic" -> Slot.TOPIC;
+            case "pages" -> Slot.PAGES;
+            case "characters" -> Slot.CHARACTERS;
+            case "n" -> Slot.N;
+            default -> throw new IllegalArgumentException("Unknown template slot {{" + name + "}}");
+        };
+    }
+
+    /**
+     * Upper bound of the rendered length for a topic of {@code topicLength} characters,
+     * for sizing the output buffer up front.
+     */
+    int estimateLength(int topicLength) {
+        return literalLength + topicSlots * topicLength + numberSlots * 10;
+    }
+
+    void renderTo(StringBuilder out, Values values) {
+        for (Object segment : segments) {
+            if (segment instanceof String literal) {
+                out.append(literal);
+                continue;
+            }
+            switch ((Slot) segment) {
+                case TOPIC -> out.append(values.topic());
+                case PAGES -> out.append(values.pages());
+                case CHARACTERS -> out.append(values.characters());
+                case N -> out.append(values.n());
+            }
+        }
+    }
+
+    String render(Values values) {
+        StringBuilder out = new StringBuilder(estimateLength(values.topic().length()));
+        renderTo(out, values);
+        return out.toString();
+    }
+}
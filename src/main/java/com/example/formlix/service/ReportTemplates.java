@@ -0,0 +1,356 @@
+package com.example.formlix.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The AI prompts and the fallback report, compiled from {@code report-prompt.txt},
+ * {@code section-prompt.txt} and {@code fallback-report.md} under {@code formlix.templates.location}.
+ * <p>
+ * Both are parsed once at startup. Every {@code reload-check-ms} (0 disables it) a request checks
+ * the files' modification time and recompiles them when they changed; a template that no longer
+ * compiles is logged and the previous version stays in use.
+ * <p>
+ * The fallback template is Markdown split into blocks at each heading. Its paragraphs are repeated
+ * in order until the report reaches about {@value #PROMPT_CHARACTERS_PER_PAGE} characters per requested
+ * page (at least one per block), so it grows with the page limit like AI content does. A block whose
+ * body starts with {@code @list N} renders its single line N times, with {@code {{n}}} from 1 to N.
+ * <p>
+ * The report prompt's {@code ## } headings are also the outline for one-call-per-section
+ * generation. A section runs from its heading through the paragraph right under it and every
+ * following paragraph that starts with {@code ### }; its weight is the number of paragraphs its
+ * {@code (Write N paragraphs)} lines ask for (the middle of a range like {@code 6-8}). For each
+ * section the section prompt is compiled with {@code {{section}}}, {@code {{sections}}} (all
+ * titles) and {@code {{structure}}} filled in; its lines starting with {@code @paragraphs } are
+ * kept only for sections with paragraphs to write.
+ */
+@Component
+public class ReportTemplates {
+
+    // ✅ Same per-page target the prompt asks the AI for
+    static final int PROMPT_CHARACTERS_PER_PAGE = 3500;
+
+    private static final String PROMPT_FILE = "report-prompt.txt";
+    private static final String SECTION_PROMPT_FILE = "section-prompt.txt";
+    private static final String FALLBACK_FILE = "fallback-report.md";
+    private static final String LIST_DIRECTIVE = "@list ";
+    private static final String PARAGRAPHS_DIRECTIVE = "@paragraphs ";
+    private static final Pattern PARAGRAPH_COUNT = Pattern.compile("Write (\\d+)(?:-(\\d+))?[^)\\n]*? paragraphs");
+
+    /**
+     * One main section of the report prompt, with its own prompt for section-by-section generation.
+     *
+     * @param paragraphs how many paragraphs the prompt asks for, the section's share of the report's length
+     */
+    record Section(String title, int paragraphs, ReportTemplate prompt) {
+    }
+
+    private record Block(ReportTemplate heading, List<ReportTemplate> paragraphs, ReportTemplate listItem, int listSize) {
+    }
+
+    private record Compiled(ReportTemplate prompt, List<Section> sections, List<Block> fallback,
+                            long promptModified, long sectionPromptModified, long fallbackModified) {
+    }
+
+    private final ResourceLoader resourceLoader;
+    private final String location;
+    private final long reloadCheckMillis;
+
+    private volatile Compiled compiled;
+    private volatile long nextReloadCheck;
+
+    public ReportTemplates(ResourceLoader resourceLoader,
+                           @Value("${formlix.templates.location:classpath:templates/}") String location,
+                           @Value("${formlix.templates.reload-check-ms:10000}") long reloadCheckMillis) {
+        this.resourceLoader = resourceLoader;
+        this.location = location.endsWith("/") ? location : location + "/";
+        this.reloadCheckMillis = reloadCheckMillis;
+    }
+
+    @PostConstruct
+    void load() throws IOException {
+        compiled = compile();
+        nextReloadCheck = System.currentTimeMillis() + reloadCheckMillis;
+        System.out.println("📝 Report templates compiled from " + location);
+    }
+
+    public String prompt(String topic, int pageLimit) {
+        return current().prompt().render(values(topic, pageLimit));
+    }
+
+    /**
+     * The report's main sections, in order.
+     */
+    List<Section> sections() {
+        return current().sections();
+    }
+
+    /**
+     * @param characters the length to ask for, this section's share of the report
+     */
+    String sectionPrompt(Section section, String topic, int pageLimit, int characters) {
+        return section.prompt().render(new ReportTemplate.Values(topic, pageLimit, characters, 0));
+    }
+
+    public String fallback(String topic, int pageLimit) {
+        List<Block> blocks = current().fallback();
+        ReportTemplate.Values values = values(topic, pageLimit);
+        int topicLength = topic.length();
+
+        // ✅ Headings and lists are fixed; only the paragraphs stretch to fill the target
+        int fixed = 0;
+        int paragraphsOnce = 0;
+        for (Block block : blocks) {
+            fixed += fixedLength(block, topicLength);
+            paragraphsOnce += paragraphsLength(block, topicLength, block.paragraphs().size());
+        }
+        double scale = (double) Math.max(0, values.characters() - fixed) / Math.max(1, paragraphsOnce);
+
+        int capacity = fixed;
+        for (Block block : blocks) {
+            capacity += paragraphsLength(block, topicLength, paragraphCount(block.paragraphs().size(), scale));
+        }
+
+        StringBuilder content = new StringBuilder(capacity);
+        for (Block block : blocks) {
+            block.heading().renderTo(content, values);
+            content.append("\n\n");
+
+            List<ReportTemplate> paragraphs = block.paragraphs();
+            int count = paragraphCount(paragraphs.size(), scale);
+            for (int i = 0; i < count; i++) {
+                paragraphs.get(i % paragraphs.size()).renderTo(content, values);
+                content.append("\n\n");
+            }
+
+            for (int n = 1; n <= block.listSize(); n++) {
+                block.listItem().renderTo(content, values.withN(n));
+                content.append('\n');
+            }
+        }
+        return content.toString();
+    }
+
+    private static ReportTemplate.Values values(String topic, int pageLimit) {
+        return new ReportTemplate.Values(topic, pageLimit, pageLimit * PROMPT_CHARACTERS_PER_PAGE, 0);
+    }
+
+    private static int paragraphCount(int poolSize, double scale) {
+        if (poolSize == 0) return 0;
+        return Math.max(1, (int) Math.round(poolSize * scale));
+    }
+
+    private static int fixedLength(Block block, int topicLength) {
+        int length = block.heading().estimateLength(topicLength) + 2;
+        if (block.listItem() != null) {
+            length += block.listSize() * (block.listItem().estimateLength(topicLength) + 1);
+        }
+        return length;
+    }
+
+    private static int paragraphsLength(Block block, int topicLength, int count) {
+        List<ReportTemplate> paragraphs = block.paragraphs();
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            length += paragraphs.get(i % paragraphs.size()).estimateLength(topicLength) + 2;
+        }
+        return length;
+    }
+
+    private Compiled current() {
+        long now = System.currentTimeMillis();
+        if (reloadCheckMillis > 0 && now >= nextReloadCheck) {
+            nextReloadCheck = now + reloadCheckMillis;
+            reloadIfModified();
+        }
+        return compiled;
+    }
+
+    private synchronized void reloadIfModified() {
+        Compiled loaded = compiled;
+        try {
+            if (lastModified(PROMPT_FILE) == loaded.promptModified()
+                    && lastModified(SECTION_PROMPT_FILE) == loaded.sectionPromptModified()
+                    && lastModified(FALLBACK_FILE) == loaded.fallbackModified()) {
+                return;
+            }
+            compiled = compile();
+            System.out.println("📝 Report templates reloaded from " + location);
+        } catch (Exception e) {
+            System.err.println("❌ Report template reload failed, keeping the previous version: " + e.getMessage());
+        }
+    }
+
+    private Compiled compile() throws IOException {
+        long promptModified = lastModified(PROMPT_FILE);
+        long sectionPromptModified = lastModified(SECTION_PROMPT_FILE);
+        long fallbackModified = lastModified(FALLBACK_FILE);
+
+        String prompt = readPrompt(PROMPT_FILE);
+        return new Compiled(ReportTemplate.compile(prompt),
+                compileSections(prompt, readPrompt(SECTION_PROMPT_FILE)), compileFallback(read(FALLBACK_FILE)),
+                promptModified, sectionPromptModified, fallbackModified);
+    }
+
+    private static List<Section> compileSections(String reportPrompt, String sectionPrompt) {
+        List<String> titles = new ArrayList<>();
+        List<String> structures = new ArrayList<>();
+        StringBuilder structure = null;
+        boolean afterBlank = false;
+
+        for (String line : reportPrompt.split("\n", -1)) {
+            if (line.startsWith("## ")) {
+                if (structure != null) structures.add(structure.toString().strip());
+                titles.add(line.substring(3).strip());
+                structure = new StringBuilder();
+                afterBlank = false;
+                continue;
+            }
+            if (structure == null) continue;
+
+            if (line.isBlank()) {
+                afterBlank = !structure.isEmpty();
+            } else if (afterBlank && !line.startsWith("### ")) {
+                // ✅ Neither the paragraph under the heading nor a subsection: the outline is over
+                structures.add(structure.toString().strip());
+                structure = null;
+                continue;
+            } else {
+                afterBlank = false;
+            }
+            structure.append(line).append('\n');
+        }
+        if (structure != null) structures.add(structure.toString().strip());
+        if (titles.isEmpty()) {
+            throw new IllegalArgumentException("Report prompt has no '## ' sections");
+        }
+
+        String outline = String.join(", ", titles);
+        List<Section> sections = new ArrayList<>(titles.size());
+        for (int i = 0; i < titles.size(); i++) {
+            int paragraphs = paragraphCount(structures.get(i));
+            String source = withParagraphLines(sectionPrompt, paragraphs > 0)
+                    .replace("{{sections}}", outline)
+                    .replace("{{section}}", titles.get(i))
+                    .replace("{{structure}}", structures.get(i));
+            sections.add(new Section(titles.get(i), paragraphs, ReportTemplate.compile(source)));
+        }
+        return List.copyOf(sections);
+    }
+
+    private static int paragraphCount(String structure) {
+        int paragraphs = 0;
+        Matcher matcher = PARAGRAPH_COUNT.matcher(structure);
+        while (matcher.find()) {
+            int low = Integer.parseInt(matcher.group(1));
+            int high = matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : low;
+            paragraphs += (low + high) / 2;
+        }
+        return paragraphs;
+    }
+
+    private static String withParagraphLines(String source, boolean keep) {
+        StringBuilder out = new StringBuilder(source.length());
+        for (String line : source.split("\n", -1)) {
+            if (line.startsWith(PARAGRAPHS_DIRECTIVE)) {
+                if (!keep) continue;
+                line = line.substring(PARAGRAPHS_DIRECTIVE.length());
+            }
+            if (!out.isEmpty()) out.append('\n');
+            out.append(line);
+        }
+        return out.toString();
+    }
+
+    private static List<Block> compileFallback(String source) {
+        List<Block> blocks = new ArrayList<>();
+        String heading = null;
+        List<String> body = new ArrayList<>();
+
+        for (String line : source.split("\n", -1)) {
+            if (line.startsWith("#")) {
+                if (heading != null) {
+                    blocks.add(compileBlock(heading, body));
+                }
+                heading = line.strip();
+                body = new ArrayList<>();
+            } else if (heading != null) {
+                body.add(line);
+            } else if (!line.isBlank()) {
+                throw new IllegalArgumentException("Fallback template must start with a heading");
+            }
+        }
+        if (heading != null) {
+            blocks.add(compileBlock(heading, body));
+        }
+        return List.copyOf(blocks);
+    }
+
+    private static Block compileBlock(String heading, List<String> body) {
+        List<String> paragraphs = new ArrayList<>();
+        StringBuilder paragraph = new StringBuilder();
+        for (String line : body) {
+            if (line.isBlank()) {
+                if (!paragraph.isEmpty()) {
+                    paragraphs.add(paragraph.toString());
+                    paragraph.setLength(0);
+                }
+            } else {
+                if (!paragraph.isEmpty()) paragraph.append(' ');
+                paragraph.append(line.strip());
+            }
+        }
+        if (!paragraph.isEmpty()) {
+            paragraphs.add(paragraph.toString());
+        }
+
+        ReportTemplate listItem = null;
+        int listSize = 0;
+        if (!paragraphs.isEmpty() && paragraphs.get(0).startsWith(LIST_DIRECTIVE)) {
+            try {
+                listSize = Integer.parseInt(paragraphs.get(0).substring(LIST_DIRECTIVE.length()).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid list size under " + heading + ": " + paragraphs.get(0));
+            }
+            if (paragraphs.size() != 2) {
+                throw new IllegalArgumentException("A list under " + heading + " needs exactly one item line");
+            }
+            listItem = ReportTemplate.compile(paragraphs.get(1));
+            paragraphs = List.of();
+        }
+
+        return new Block(ReportTemplate.compile(heading),
+                paragraphs.stream().map(ReportTemplate::compile).toList(), listItem, listSize);
+    }
+
+    private long lastModified(String name) {
+        try {
+            return resourceLoader.getResource(location + name).lastModified();
+        } catch (IOException e) {
+            // ✅ Resources without a timestamp are simply never reloaded
+            return 0;
+        }
+    }
+
+    // ✅ The file's final newline is not part of the prompt
+    private String readPrompt(String name) throws IOException {
+        String prompt = read(name);
+        return prompt.endsWith("\n") ? prompt.substring(0, prompt.length() - 1) : prompt;
+    }
+
+    private String read(String name) throws IOException {
+        Resource resource = resourceLoader.getResource(location + name);
+        String text = resource.getContentAsString(StandardCharsets.UTF_8);
+        return text.replace("\r\n", "\n");
+    }
+}
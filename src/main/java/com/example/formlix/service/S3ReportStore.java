@@ -0,0 +1,348 @@
+package com.example.formlix.service;
+
+import jakarta.annotation.PostConstruct;
+import okhttp3.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports in an S3-compatible bucket (AWS S3, MinIO, ...), so several instances serve the same
+ * files. Objects are keyed {@code <prefix><ab>/<cd>/<fileName>}; the hash prefixes also spread
+ * load over S3's partitions.
+ * <p>
+ * Uploads are spooled to a local temporary file and published with a single {@code PUT}, which
+ * S3 makes visible atomically. Requests are signed with AWS Signature Version 4 over OkHttp
+ * (path-style addressing by default, as MinIO expects); the payload is sent as
+ * {@code UNSIGNED-PAYLOAD}, so use an {@code https} endpoint outside a trusted network.
+ */
+@Component
+@ConditionalOnProperty(name = "formlix.storage.type", havingValue = "s3")
+public class S3ReportStore implements ReportStore {
+
+    private static final String SERVICE = "s3";
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    private static final String EMPTY_PAYLOAD_HASH = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+
+    private final OkHttpClient http;
+    private final HttpUrl endpoint;
+    private final String region;
+    private final String bucket;
+    private final String prefix;
+    private final String accessKey;
+    private final String secretKey;
+    private final boolean pathStyle;
+    private final ApplicationEventPublisher events;
+
+    public S3ReportStore(@Value("${formlix.storage.s3.endpoint}") String endpoint,
+                         @Value("${formlix.storage.s3.region:us-east-1}") String region,
+                         @Value("${formlix.storage.s3.bucket}") String bucket,
+                         @Value("${formlix.storage.s3.prefix:reports/}") String prefix,
+                         @Value("${formlix.storage.s3.access-key}") String accessKey,
+                         @Value("${formlix.storage.s3.secret-key}") String secretKey,
+                         @Value("${formlix.storage.s3.path-style:true}") boolean pathStyle,
+                         ApplicationEventPublisher events) {
+        this.events = events;
+        this.endpoint = HttpUrl.get(endpoint);
+        this.region = region;
+        this.bucket = bucket;
+        this.prefix = prefix.isEmpty() || prefix.endsWith("/") ? prefix : prefix + "/";
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.pathStyle = pathStyle;
+        this.http = new OkHttpClient.Builder()
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(120, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @PostConstruct
+    void checkBucket() {
+        try (Response response = execute("HEAD", "", Map.of(), null, Map.of())) {
+            if (response.isSuccessful()) {
+                System.out.println("🪣 Report store: " + describe());
+            } else {
+                System.err.println("❌ Report bucket " + bucket + " not usable: HTTP " + response.code());
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Report bucket " + bucket + " not reachable: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Upload create() throws IOException {
+        return new S3Upload(Files.createTempFile("formlix-report-", ".part"));
+    }
+
+    @Override
+    public StoredReport stat(String fileName) throws IOException {
+        if (!ReportStore.isValidName(fileName)) throw new NoSuchFileException(fileName);
+        try (Response response = execute("HEAD", keyFor(fileName), Map.of(), null, Map.of())) {
+            if (response.code() == 404) throw new NoSuchFileException(fileName);
+            requireSuccess(response, "HEAD", fileName);
+            String lastModified = response.header("Last-Modified");
+            return new StoredReport(fileName,
+                    Long.parseLong(Objects.requireNonNull(response.header("Content-Length"), "Content-Length")),
+                    lastModified != null
+                            ? ZonedDateTime.parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli()
+                            : 0,
+                    response.header("ETag"));
+        }
+    }
+
+    @Override
+    public InputStream open(String fileName, long offset, long length) throws IOException {
+        if (!ReportStore.isValidName(fileName)) throw new NoSuchFileException(fileName);
+        ReportStore.requireValidRange(fileName, offset, length);
+        Response response = execute("GET", keyFor(fileName), Map.of(),
+                null, Map.of("range", "bytes=" + offset + "-" + (offset + length - 1)));
+        if (response.code() == 404) {
+            response.close();
+            throw new NoSuchFileException(fileName);
+        }
+        // ✅ Closing the stream releases the connection
+        if (response.code() == 206) {
+            return response.body().byteStream();
+        }
+        if (response.code() != 200) {
+            response.close();
+            throw new IOException("S3 GET " + fileName + " failed: HTTP " + response.code());
+        }
+
+        // ✅ The server ignored the Range header and sent the whole object: cut the range out of it
+        InputStream body = response.body().byteStream();
+        try {
+            body.skipNBytes(offset);
+        } catch (IOException e) {
+            body.close();
+            throw e;
+        }
+        return new LimitedInputStream(body, length);
+    }
+
+    @Override
+    public Path localPath(String fileName) {
+        return null;
+    }
+
+    @Override
+    public void delete(String fileName) throws IOException {
+        try (Response response = execute("DELETE", keyFor(ReportStore.requireValidName(fileName)), Map.of(), null, Map.of())) {
+            if (response.code() != 404) requireSuccess(response, "DELETE", fileName);
+        }
+        events.publishEvent(new Deleted(fileName));
+    }
+
+    @Override
+    public List<StoredReport> list() throws IOException {
+        List<StoredReport> reports = new ArrayList<>();
+        String continuationToken = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            query.put("prefix", prefix);
+            if (continuationToken != null) query.put("continuation-token", continuationToken);
+
+            Document page;
+            try (Response response = execute("GET", "", query, null, Map.of())) {
+                requireSuccess(response, "LIST", prefix);
+                page = parseXml(response.body().byteStream());
+            }
+
+            NodeList contents = page.getElementsByTagName("Contents");
+            for (int i = 0; i < contents.getLength(); i++) {
+                Element object = (Element) contents.item(i);
+                String key = text(object, "Key");
+                String fileName = key.substring(key.lastIndexOf('/') + 1);
+                // ✅ Only <prefix><ab>/<cd>/<file>; anything else in the bucket is not ours
+                if (!key.equals(keyFor(fileName))) continue;
+                reports.add(new StoredReport(fileName, Long.parseLong(text(object, "Size")),
+                        Instant.parse(text(object, "LastModified")).toEpochMilli(), text(object, "ETag")));
+            }
+            continuationToken = "true".equals(text(page.getDocumentElement(), "IsTruncated"))
+                    ? text(page.getDocumentElement(), "NextContinuationToken") : null;
+        } while (continuationToken != null);
+        return reports;
+    }
+
+    @Override
+    public String describe() {
+        return "s3://" + bucket + "/" + prefix + " at " + endpoint;
+    }
+
+    private String keyFor(String fileName) {
+        return prefix + ReportStore.shardOf(fileName) + "/" + fileName;
+    }
+
+    private Response execute(String method, String key, Map<String, String> query, Path body,
+                             Map<String, String> headers) throws IOException {
+        String host = pathStyle ? endpoint.host() : bucket + "." + endpoint.host();
+        if (endpoint.port() != HttpUrl.defaultPort(endpoint.scheme())) {
+            host += ":" + endpoint.port();
+        }
+        String path = (pathStyle ? "/" + encode(bucket, false) : "") + "/" + encode(key, true);
+        StringBuilder canonicalQuery = new StringBuilder();
+        for (Map.Entry<String, String> parameter : new TreeMap<>(query).entrySet()) {
+            if (!canonicalQuery.isEmpty()) canonicalQuery.append('&');
+            canonicalQuery.append(encode(parameter.getKey(), false)).append('=').append(encode(parameter.getValue(), false));
+        }
+
+        String payloadHash = body != null ? UNSIGNED_PAYLOAD : EMPTY_PAYLOAD_HASH;
+        TreeMap<String, String> signed = new TreeMap<>(headers);
+        signed.put("host", host);
+        signed.put("x-amz-content-sha256", payloadHash);
+        signed.put("x-amz-date", AMZ_DATE.format(Instant.now()));
+        String authorization = authorization(method, path, canonicalQuery.toString(), signed, payloadHash);
+
+        Request.Builder request = new Request.Builder()
+                .url(endpoint.scheme() + "://" + host + path + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery))
+                .header("Authorization", authorization);
+        signed.forEach((name, value) -> {
+            if (!name.equals("host")) request.header(name, value);
+        });
+        request.method(method, body != null ? RequestBody.create(body.toFile(), OCTET_STREAM) : null);
+        return http.newCall(request.build()).execute();
+    }
+
+    // ✅ AWS Signature Version 4; package-private so it can be checked against AWS's published examples
+    String authorization(String method, String path, String canonicalQuery, SortedMap<String, String> headers,
+                         String payloadHash) {
+        String amzDate = headers.get("x-amz-date");
+        String date = amzDate.substring(0, 8);
+        StringBuilder canonicalHeaders = new StringBuilder();
+        headers.forEach((name, value) -> canonicalHeaders.append(name).append(':').append(value.trim()).append('\n'));
+        String signedHeaders = String.join(";", headers.keySet());
+
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery + "\n"
+                + canonicalHeaders + "\n" + signedHeaders + "\n" + payloadHash;
+        String scope = date + "/" + region + "/" + SERVICE + "/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n" + HexFormat.of().formatHex(sha256(canonicalRequest));
+
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        key = hmac(key, region);
+        key = hmac(key, SERVICE);
+        key = hmac(key, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(key, stringToSign));
+
+        return "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature;
+    }
+
+    // ✅ RFC 3986 unreserved characters stay, everything else is %XX (S3's canonical URI encoding)
+    private static String encode(String value, boolean keepSlash) {
+        StringBuilder encoded = new StringBuilder(value.length());
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((c >> 4) & 0xF, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xF, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void requireSuccess(Response response, String operation, String target) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("S3 " + operation + " " + target + " failed: HTTP " + response.code());
+        }
+    }
+
+    private static Document parseXml(InputStream in) throws IOException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(in);
+        } catch (Exception e) {
+            throw new IOException("Invalid S3 response: " + e.getMessage(), e);
+        }
+    }
+
+    private static String text(Element parent, String tag) {
+        NodeList nodes = parent.getElementsByTagName(tag);
+        return nodes.getLength() > 0 ? nodes.item(0).getTextContent() : null;
+    }
+
+    private final class S3Upload implements Upload {
+
+        private final Path spool;
+        private OutputStream out;
+
+        private S3Upload(Path spool) {
+            this.spool = spool;
+        }
+
+        @Override
+        public OutputStream out() throws IOException {
+            if (out == null) {
+                out = Files.newOutputStream(spool);
+            }
+            return out;
+        }
+
+        @Override
+        public void publish(String fileName) throws IOException {
+            out().close();
+            try (Response response = execute("PUT", keyFor(ReportStore.requireValidName(fileName)),
+                    Map.of(), spool, Map.of())) {
+                requireSuccess(response, "PUT", fileName);
+            } finally {
+                Files.deleteIfExists(spool);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) out.close();
+            Files.deleteIfExists(spool);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.formlix.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates a report as one AI call per main section instead of one call for the whole report.
+ * <p>
+ * Every section gets its own prompt and {@code max_tokens} budget, so long reports are no
+ * longer cut off mid-way. The calls run on {@code reportSectionExecutor}, at most
+ * {@code parallelism} at a time per report, and the answers are stitched back together in
+ * report order: a report takes about as long as its slowest section.
+ * <p>
+ * The sections and their prompts come from {@link ReportTemplates}: the outline of the
+ * single-call prompt, so both ways of generating ask for the same report.
+ */
+@Service
+public class SectionParallelGenerator {
+
+    // ✅ ~3 characters per token leaves room for headings and longer words
+    static final int CHARACTERS_PER_TOKEN = 3;
+    private static final int MIN_MAX_TOKENS = 1500;
+
+    private final AIService aiService;
+    private final ReportTemplates reportTemplates;
+    private final Executor sectionExecutor;
+    private final int parallelism;
+
+    public SectionParallelGenerator(AIService aiService,
+                                    ReportTemplates reportTemplates,
+                                    @Qualifier("reportSectionExecutor") Executor sectionExecutor,
+                                    @Value("${formlix.report.sections.parallelism:4}") int parallelism) {
+        this.aiService = aiService;
+        this.reportTemplates = reportTemplates;
+        this.sectionExecutor = sectionExecutor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * @param grant the quota reserved for this report, charged as each section's usage comes in; may be {@code null}
+     * @return the cleaned report, or {@code null} when any section could not be generated
+     */
+    public String generate(String topic, int pageLimit, TokenBudgetPlanner.Grant grant) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        Semaphore permits = new Semaphore(parallelism);
+        // ✅ Set by the first section that fails; nothing else is sent to the AI after that
+        AtomicBoolean failed = new AtomicBoolean();
+        // ✅ One snapshot for the whole report, even if the templates are reloaded meanwhile
+        List<ReportTemplates.Section> outline = reportTemplates.sections();
+        List<CompletableFuture<String>> sections = new ArrayList<>(outline.size());
+
+        // ✅ Fan out in report order; blocks here while this report already has `parallelism` calls in flight
+        for (ReportTemplates.Section spec : outline) {
+            permits.acquire();
+            if (failed.get()) {
+                permits.release();
+                break;
+            }
+            String prompt = reportTemplates.sectionPrompt(spec, topic, pageLimit, targetCharacters(outline, spec, pageLimit));
+            int maxTokens = maxTokens(outline, spec, pageLimit);
+            sections.add(CompletableFuture
+                    .supplyAsync(() -> failed.get() ? null : generateSection(spec, prompt, maxTokens, grant), sectionExecutor)
+                    .whenComplete((content, error) -> {
+                        if (content == null && failed.compareAndSet(false, true)) {
+                            System.err.println("⚠️ Section '" + spec.title() + "' failed, dropping the report");
+                        }
+                        permits.release();
+                    }));
+        }
+
+        // ✅ Fan in: join in order, one failed section fails the whole report
+        List<String> contents = new ArrayList<>(sections.size());
+        for (CompletableFuture<String> section : sections) {
+            String content = section.exceptionally(e -> null).join();
+            if (content == null) {
+                sections.forEach(pending -> pending.cancel(false));
+                return null;
+            }
+            contents.add(content);
+        }
+
+        System.out.println("✅ " + outline.size() + " sections generated in " + (System.currentTimeMillis() - start)
+                + " ms (parallelism " + parallelism + ")");
+        return String.join("\n\n", contents);
+    }
+
+    private String generateSection(ReportTemplates.Section spec, String prompt, int maxTokens, TokenBudgetPlanner.Grant grant) {
+        long start = System.currentTimeMillis();
+        String content = aiService.generateContent(prompt, maxTokens, grant);
+        if (content == null || content.isBlank() || content.startsWith("Error")) {
+            return null;
+        }
+
+        content = extractSection(ReportContentCleaner.clean(content), spec.title());
+        System.out.println("🧩 Section '" + spec.title() + "': " + content.length() + " characters in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return content.isBlank() ? null : content;
+    }
+
+    /**
+     * Keeps only the requested section: adds its heading when the model left it out and drops
+     * anything from the next {@code ## } heading on, in case the model carried on with the report.
+     */
+    static String extractSection(String cleaned, String title) {
+        String heading = "## " + title;
+        int start = cleaned.indexOf(heading);
+        String body;
+        if (start >= 0) {
+            body = cleaned.substring(start + heading.length());
+        } else if (cleaned.startsWith("## ")) {
+            // ✅ Model renamed the heading; keep its text under ours
+            int lineEnd = cleaned.indexOf('\n');
+            body = lineEnd >= 0 ? cleaned.substring(lineEnd) : "";
+        } else {
+            body = "\n\n" + cleaned;
+        }
+
+        int next = body.indexOf("\n## ");
+        if (next >= 0) {
+            body = body.substring(0, next);
+        }
+        body = body.strip();
+        return body.isEmpty() ? "" : heading + "\n\n" + body;
+    }
+
+    // ✅ Splits the single-prompt budget by paragraph count
+    static int targetCharacters(List<ReportTemplates.Section> outline, ReportTemplates.Section spec, int pageLimit) {
+        int totalParagraphs = outline.stream().mapToInt(ReportTemplates.Section::paragraphs).sum();
+        if (totalParagraphs == 0) return 0;
+        return (int) ((long) pageLimit * ReportTemplates.PROMPT_CHARACTERS_PER_PAGE * spec.paragraphs() / totalParagraphs);
+    }
+
+    static int maxTokens(List<ReportTemplates.Section> outline, ReportTemplates.Section spec, int pageLimit) {
+        return Math.max(MIN_MAX_TOKENS, targetCharacters(outline, spec, pageLimit) / CHARACTERS_PER_TOKEN);
+    }
+}
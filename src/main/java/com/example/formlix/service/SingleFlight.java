@@ -0,0 +1,104 @@
+package com.example.formlix.service;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller (the leader) does the work,
+ * callers arriving while it is in flight (followers) wait for and share its result.
+ * <p>
+ * Nothing is remembered once the leader is done, so this only deduplicates overlapping calls;
+ * caching finished results is up to the caller. When the leader fails, each follower runs the
+ * call itself rather than inheriting an error that may have been specific to the leader.
+ */
+final class SingleFlight<V> {
+
+    @FunctionalInterface
+    interface Call<V> {
+        V call() throws Exception;
+    }
+
+    private final String name;
+    private final ConcurrentHashMap<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    SingleFlight(String name) {
+        this.name = name;
+    }
+
+    V run(String key, Call<V> call) throws Exception {
+        if (key == null) {
+            return call.call();
+        }
+
+        Flight<V> flight = begin(key);
+        if (!flight.isLeader()) {
+            return flight.await(call);
+        }
+        try {
+            V value = call.call();
+            flight.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            flight.fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Lower-level form of {@link #run} for leaders that publish their result before returning.
+     * A leader must end its flight with {@link Flight#complete} or {@link Flight#fail}.
+     */
+    Flight<V> begin(String key) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            System.out.println("🔗 Joined in-flight " + name + " (" + key.substring(0, Math.min(12, key.length())) + ")");
+            return new Flight<>(this, key, existing, false);
+        }
+        return new Flight<>(this, key, future, true);
+    }
+
+    static final class Flight<V> {
+
+        private final SingleFlight<V> owner;
+        private final String key;
+        private final CompletableFuture<V> future;
+        private final boolean leader;
+
+        private Flight(SingleFlight<V> owner, String key, CompletableFuture<V> future, boolean leader) {
+            this.owner = owner;
+            this.key = key;
+            this.future = future;
+            this.leader = leader;
+        }
+
+        boolean isLeader() {
+            return leader;
+        }
+
+        void complete(V value) {
+            if (!leader || future.isDone()) return;
+            owner.inFlight.remove(key, future);
+            future.complete(value);
+        }
+
+        void fail(Throwable error) {
+            if (!leader || future.isDone()) return;
+            owner.inFlight.remove(key, future);
+            future.completeExceptionally(error);
+        }
+
+        /**
+         * Follower side: the leader's value, or {@code fallback} run by this caller when the leader failed.
+         */
+        V await(Call<V> fallback) throws Exception {
+            try {
+                return future.get();
+            } catch (ExecutionException | CancellationException e) {
+                return fallback.call();
+            }
+        }
+    }
+}
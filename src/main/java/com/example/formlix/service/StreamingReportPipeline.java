@@ -0,0 +1,105 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.ReportOutline;
+
+import java.nio.CharBuffer;
+import java.util.List;
+
+/**
+ * Renders a report while its content is still streaming in from the AI.
+ * <p>
+ * Deltas go through {@link ReportContentCleaner.Incremental}, the page limit and
+ * {@link ReportContentParser}; every section the parser closes is handed to the render
+ * sessions straight away. The documents end up identical to rendering
+ * {@code adjustContentForPageLimit(clean(content))} in one go: text within 80% of the page
+ * limit is always kept, so only the last stretch before the limit waits for the cut.
+ * Errors from the sessions are kept and rethrown by {@link #finishDocuments()}, so they never
+ * interrupt the AI stream. Not thread-safe; feed it from the thread reading the stream. The
+ * sessions decide where the rendering runs (see {@link RenderPoolSession}).
+ */
+final class StreamingReportPipeline {
+
+    private final ReportContentCleaner.Incremental cleaner = new ReportContentCleaner.Incremental();
+    private final ReportContentParser parser = new ReportContentParser();
+    private final StringBuilder cleaned = new StringBuilder(64 * 1024);
+    private final List<? extends ReportRenderSession> sessions;
+    private final Integer pageLimit;
+    private final int targetCharacters;
+    private final int alwaysKept;
+
+    private int fed;
+    private boolean limitReached;
+    private Exception failure;
+
+    StreamingReportPipeline(Integer pageLimit, List<? extends ReportRenderSession> sessions) {
+        this.pageLimit = pageLimit;
+        this.sessions = sessions;
+        this.targetCharacters = pageLimit != null && pageLimit > 0 ? pageLimit * ReportGenerator.MAX_CHARACTERS_PER_PAGE : 0;
+        // ✅ adjustContentForPageLimit cuts at a "\n\n" past 80% of the target, or at the target itself
+        this.alwaysKept = (int) (targetCharacters * 0.8) + 1;
+    }
+
+    void accept(String delta) {
+        if (failure != null) return;
+        try {
+            cleaned.append(cleaner.feed(delta));
+            feedParser(false);
+            renderCompletedSections();
+        } catch (Exception e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * @return the whole cleaned content, before the page limit is applied
+     */
+    String finishContent() {
+        cleaned.append(cleaner.finish());
+        return cleaned.toString();
+    }
+
+    /**
+     * Renders the remaining sections and completes every document. Call after {@link #finishContent()}.
+     */
+    void finishDocuments() throws Exception {
+        if (failure != null) throw failure;
+
+        feedParser(true);
+        parser.finish();
+        renderCompletedSections();
+        for (ReportRenderSession session : sessions) {
+            session.startFinish();
+        }
+        for (ReportRenderSession session : sessions) {
+            session.finish();
+        }
+    }
+
+    private void feedParser(boolean last) {
+        if (limitReached) return;
+
+        int available = cleaned.length();
+        if (targetCharacters > 0 && available > targetCharacters) {
+            // ✅ Only the first targetCharacters matter for the cut, so this matches the batch result exactly
+            String limited = ReportGenerator.adjustContentForPageLimit(cleaned.substring(0, targetCharacters + 1), pageLimit);
+            parser.feed(CharBuffer.wrap(limited, fed, limited.length()));
+            fed = limited.length();
+            limitReached = true;
+            return;
+        }
+
+        int end = last || targetCharacters == 0 ? available : Math.min(available, alwaysKept);
+        if (end > fed) {
+            parser.feed(CharBuffer.wrap(cleaned, fed, end));
+            fed = end;
+        }
+    }
+
+    private void renderCompletedSections() throws Exception {
+        for (ReportOutline.Section section : parser.completedSections()) {
+            for (ReportRenderSession session : sessions) {
+                session.addSection(section);
+            }
+        }
+    }
+}
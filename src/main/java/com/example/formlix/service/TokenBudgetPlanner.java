@@ -0,0 +1,302 @@
+package com.example.formlix.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Matches a requested page count to what the model and our Hugging Face quota can deliver.
+ * <p>
+ * <b>Model limit.</b> A report needs about {@code pageLimit *} {@value ReportTemplates#PROMPT_CHARACTERS_PER_PAGE} characters, i.e.
+ * {@code / 3} completion tokens. When that fits in one completion of at most
+ * {@code max-completion-tokens} (and the report is shorter than {@code sections.min-pages})
+ * it is one call with a matching {@code max_tokens}; otherwise one call per section. Page
+ * counts whose largest section would still not fit are planned with fewer pages.
+ * <p>
+ * <b>Quota.</b> A generation reserves the prompt tokens plus the {@code max_tokens} of all its
+ * calls against {@code tokens-per-minute}; tokens actually used (reported by {@link AIService})
+ * count for a minute after each call. Live requests wait up to {@code max-wait-ms} for room,
+ * then fall back to the largest page count that fits right now, or get no grant at all (the
+ * template fallback applies) instead of being sent to fail with a 429. Waiting uses a
+ * {@link ReentrantLock}, so queued virtual threads don't pin their carriers.
+ */
+@Component
+public class TokenBudgetPlanner {
+
+    // ✅ Headings, the reference list and the odd longer paragraph on top of the character target
+    private static final int HEADROOM_TOKENS = 512;
+    private static final int MIN_MAX_TOKENS = 1500;
+    // ✅ Prompt sizes: the ~3 KB report prompt, or one ~1 KB prompt per section
+    private static final int REPORT_PROMPT_TOKENS = 900;
+    private static final int SECTION_PROMPT_TOKENS = 300;
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    /**
+     * @param pageLimit      pages the AI is asked for; lower than requested when downgraded
+     * @param sections       one call per section instead of one call for the whole report
+     * @param maxTokens      {@code max_tokens} of the single call (sections size their own)
+     * @param reservedTokens charged against the per-minute budget while the generation runs
+     */
+    public record Plan(int pageLimit, boolean sections, int maxTokens, int reservedTokens) {
+    }
+
+    private record Usage(long at, int tokens) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final ReportTemplates reportTemplates;
+    private final int maxCompletionTokens;
+    private final long tokensPerMinute;
+    private final long maxWaitMillis;
+    private final boolean sectionsEnabled;
+    private final int sectionsMinPages;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Deque<Usage> recentUsage = new ArrayDeque<>();
+    private long usedLastMinute;
+    private long reserved;
+
+    public TokenBudgetPlanner(MeterRegistry meterRegistry,
+                              ReportTemplates reportTemplates,
+                              @Value("${formlix.ai.budget.max-completion-tokens:8192}") int maxCompletionTokens,
+                              @Value("${formlix.ai.budget.tokens-per-minute:150000}") long tokensPerMinute,
+                              @Value("${formlix.ai.budget.max-wait-ms:15000}") long maxWaitMillis,
+                              @Value("${formlix.report.sections.enabled:true}") boolean sectionsEnabled,
+                              @Value("${formlix.report.sections.min-pages:5}") int sectionsMinPages) {
+        this.meterRegistry = meterRegistry;
+        this.reportTemplates = reportTemplates;
+        this.maxCompletionTokens = maxCompletionTokens;
+        this.tokensPerMinute = tokensPerMinute;
+        this.maxWaitMillis = maxWaitMillis;
+        this.sectionsEnabled = sectionsEnabled;
+        this.sectionsMinPages = sectionsMinPages;
+        Gauge.builder("formlix.ai.budget.available", this, TokenBudgetPlanner::available)
+                .description("Tokens left in the current minute of the AI quota")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The plan for {@code pageLimit} pages within the model's completion limit, ignoring the quota.
+     */
+    public Plan plan(int pageLimit) {
+        for (int pages = Math.max(1, pageLimit); pages >= 1; pages--) {
+            Plan plan = planExactly(pages);
+            if (plan != null) return plan;
+        }
+        // ✅ Even one page does not fit: ask anyway, capped at what the model allows
+        return new Plan(1, false, maxCompletionTokens, REPORT_PROMPT_TOKENS + maxCompletionTokens);
+    }
+
+    private Plan planExactly(int pages) {
+        int singleTokens = singleCallTokens(pages);
+        boolean singleFits = singleTokens <= maxCompletionTokens;
+        if (sectionsEnabled && (pages >= sectionsMinPages || !singleFits)) {
+            int largest = 0;
+            int total = 0;
+            List<ReportTemplates.Section> outline = reportTemplates.sections();
+            for (ReportTemplates.Section spec : outline) {
+                int tokens = SectionParallelGenerator.maxTokens(outline, spec, pages);
+                largest = Math.max(largest, tokens);
+                total += SECTION_PROMPT_TOKENS + tokens;
+            }
+            if (largest <= maxCompletionTokens) {
+                return new Plan(pages, true, 0, total);
+            }
+        }
+        return singleFits ? new Plan(pages, false, singleTokens, REPORT_PROMPT_TOKENS + singleTokens) : null;
+    }
+
+    private static int singleCallTokens(int pages) {
+        int characters = pages * ReportTemplates.PROMPT_CHARACTERS_PER_PAGE;
+        return Math.max(MIN_MAX_TOKENS, characters / SectionParallelGenerator.CHARACTERS_PER_TOKEN + HEADROOM_TOKENS);
+    }
+
+    /**
+     * For live requests: waits up to {@code max-wait-ms} for quota to reserve the full plan,
+     * then settles for the largest smaller plan that fits.
+     *
+     * @return the grant to close once the generation is done, or {@code null} when not even
+     * one page fits the remaining quota
+     */
+    public Grant acquire(int pageLimit) throws InterruptedException {
+        Plan plan = plan(pageLimit);
+        if (tokensPerMinute <= 0) return new Grant(this, plan, 0, false);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        lock.lock();
+        try {
+            boolean waited = false;
+            // ✅ A plan larger than the whole minute can never fit; don't make it wait for that
+            while (plan.reservedTokens() <= tokensPerMinute) {
+                if (plan.reservedTokens() <= availableLocked()) {
+                    count(waited ? "queued" : "granted");
+                    return reserveLocked(plan, false);
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) break;
+                waited = true;
+                released.awaitNanos(Math.min(remaining, nanosUntilOldestExpires()));
+            }
+
+            long available = availableLocked();
+            for (int pages = plan.pageLimit() - 1; pages >= 1; pages--) {
+                Plan smaller = plan(pages);
+                if (smaller.reservedTokens() <= available) {
+                    count("downgraded");
+                    System.out.println("📉 AI quota tight: planning " + smaller.pageLimit() + " of "
+                            + pageLimit + " pages (" + available + " tokens left this minute)");
+                    return reserveLocked(smaller, true);
+                }
+            }
+            count("rejected");
+            System.err.println("⚠️ AI quota exhausted (" + available + " tokens left this minute), skipping the AI call");
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * For background work: the full plan if the quota has room right now, otherwise {@code null}.
+     */
+    public Grant tryAcquire(int pageLimit) {
+        Plan plan = plan(pageLimit);
+        if (tokensPerMinute <= 0) return new Grant(this, plan, 0, false);
+
+        lock.lock();
+        try {
+            if (plan.reservedTokens() > availableLocked()) return null;
+            return reserveLocked(plan, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tokens one AI call outside any {@link Grant} actually used; they count against the quota
+     * for the next minute. Calls made under a grant use {@link Grant#recordUsage} instead.
+     */
+    public void recordUsage(int tokens) {
+        if (tokens <= 0 || tokensPerMinute <= 0) return;
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            recentUsage.addLast(new Usage(now, tokens));
+            usedLastMinute += tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Grant reserveLocked(Plan plan, boolean downgraded) {
+        reserved += plan.reservedTokens();
+        return new Grant(this, plan, plan.reservedTokens(), downgraded);
+    }
+
+    // ✅ Used tokens leave the grant's reservation, so they are not counted twice while it is open
+    private void consume(Grant grant, int tokens) {
+        if (tokens <= 0 || tokensPerMinute <= 0) return;
+        lock.lock();
+        try {
+            int fromReservation = Math.min(tokens, grant.tokens);
+            grant.tokens -= fromReservation;
+            reserved -= fromReservation;
+            recentUsage.addLast(new Usage(System.nanoTime(), tokens));
+            usedLastMinute += tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Grant grant) {
+        lock.lock();
+        try {
+            if (grant.tokens == 0) return;
+            reserved -= grant.tokens;
+            grant.tokens = 0;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long available() {
+        lock.lock();
+        try {
+            return tokensPerMinute > 0 ? availableLocked() : Long.MAX_VALUE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long availableLocked() {
+        long now = System.nanoTime();
+        while (!recentUsage.isEmpty() && now - recentUsage.peekFirst().at() >= WINDOW_NANOS) {
+            usedLastMinute -= recentUsage.pollFirst().tokens();
+        }
+        return tokensPerMinute - usedLastMinute - reserved;
+    }
+
+    // ✅ Usage leaving the window frees quota without anyone calling release
+    private long nanosUntilOldestExpires() {
+        if (recentUsage.isEmpty()) return WINDOW_NANOS;
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(10), recentUsage.peekFirst().at() + WINDOW_NANOS - System.nanoTime());
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("formlix.ai.budget.plans", "outcome", outcome).increment();
+    }
+
+    /**
+     * Quota reserved for one generation; release it with {@link #close()} when the AI calls are done.
+     */
+    public static final class Grant implements AutoCloseable {
+
+        private final TokenBudgetPlanner owner;
+        private final Plan plan;
+        private final boolean downgraded;
+        // ✅ Still reserved; guarded by the planner's lock
+        private int tokens;
+
+        private Grant(TokenBudgetPlanner owner, Plan plan, int tokens, boolean downgraded) {
+            this.owner = owner;
+            this.plan = plan;
+            this.tokens = tokens;
+            this.downgraded = downgraded;
+        }
+
+        public Plan plan() {
+            return plan;
+        }
+
+        /**
+         * Fewer pages than the model could do, because of the quota at the time; such content
+         * is not what a later request for the full page count should get.
+         */
+        public boolean isDowngraded() {
+            return downgraded;
+        }
+
+        /**
+         * Tokens one AI call of this generation used: they move from the reservation to the
+         * minute's usage, and only what exceeds the reservation is charged on top.
+         */
+        public void recordUsage(int tokens) {
+            owner.consume(this, tokens);
+        }
+
+        @Override
+        public void close() {
+            owner.release(this);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.formlix.service;
+
+import com.example.formlix.repository.ReportRepo;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pre-generates AI content for trending topics so peak-hour requests hit the content cache.
+ * <p>
+ * Every {@code interval-ms} it reads the most requested (topic, pageLimit) pairs of the last
+ * {@code lookback-hours} from the {@code Report} table and asks the AI for the ones that are
+ * not cached yet, at most {@code concurrency} at a time and {@code max-calls-per-hour} per hour
+ * (a sectioned generation counts as one call). It only works while the instance is idle: no
+ * more than {@code idle-max-live-generations} live generations and a closed AI circuit. When
+ * that is not the case it stops and waits twice as long before the next attempt, up to
+ * {@code max-backoff-ms}; a run that completes resets the back-off.
+ */
+@Component
+@ConditionalOnProperty(name = "formlix.prewarm.enabled", havingValue = "true")
+public class TrendingTopicPrewarmer {
+
+    private static final long HOUR_MILLIS = 60 * 60 * 1000L;
+
+    private final ReportRepo reportRepository;
+    private final ReportGenerator reportGenerator;
+    private final AIService aiService;
+    private final Executor prewarmExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${formlix.prewarm.interval-ms:600000}")
+    private long intervalMillis;
+
+    @Value("${formlix.prewarm.lookback-hours:72}")
+    private long lookbackHours;
+
+    @Value("${formlix.prewarm.min-requests:3}")
+    private long minRequests;
+
+    @Value("${formlix.prewarm.max-topics:20}")
+    private int maxTopics;
+
+    @Value("${formlix.prewarm.max-calls-per-hour:30}")
+    private int maxCallsPerHour;
+
+    @Value("${formlix.prewarm.concurrency:2}")
+    private int concurrency;
+
+    @Value("${formlix.prewarm.idle-max-live-generations:2}")
+    private int idleMaxLiveGenerations;
+
+    @Value("${formlix.prewarm.max-backoff-ms:3600000}")
+    private long maxBackoffMillis;
+
+    // ✅ Start times of AI calls in the last hour, for the hourly budget
+    private final Deque<Long> recentCalls = new ArrayDeque<>();
+    private long backoffMillis;
+    private long backoffUntil;
+
+    public TrendingTopicPrewarmer(ReportRepo reportRepository,
+                                  ReportGenerator reportGenerator,
+                                  AIService aiService,
+                                  @Qualifier("reportPrewarmExecutor") Executor prewarmExecutor,
+                                  MeterRegistry meterRegistry) {
+        this.reportRepository = reportRepository;
+        this.reportGenerator = reportGenerator;
+        this.aiService = aiService;
+        this.prewarmExecutor = prewarmExecutor;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(fixedDelayString = "${formlix.prewarm.interval-ms:600000}",
+            initialDelayString = "${formlix.prewarm.initial-delay-ms:120000}")
+    public void prewarmTrendingTopics() {
+        if (System.currentTimeMillis() < backoffUntil) return;
+        if (!isIdle()) {
+            backOff();
+            return;
+        }
+
+        List<ReportRepo.TrendingTopic> trending = reportRepository.findTrendingTopics(
+                LocalDateTime.now().minusHours(lookbackHours), minRequests, PageRequest.of(0, maxTopics));
+        if (trending.isEmpty()) return;
+
+        Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        boolean busy = false;
+        int started = 0;
+        try {
+            for (ReportRepo.TrendingTopic candidate : trending) {
+                permits.acquire();
+                // ✅ Re-checked before every call: live traffic may have picked up meanwhile
+                if (!isIdle()) {
+                    permits.release();
+                    busy = true;
+                    break;
+                }
+                if (!takeBudget()) {
+                    permits.release();
+                    System.out.println("⏸️ Prewarm budget of " + maxCallsPerHour + " calls/hour used up");
+                    break;
+                }
+
+                started++;
+                running.add(CompletableFuture.runAsync(() -> prewarm(candidate), prewarmExecutor)
+                        .whenComplete((ignored, error) -> permits.release()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+
+        if (busy) {
+            backOff();
+        } else {
+            backoffMillis = 0;
+        }
+        System.out.println("🔥 Prewarm run: " + trending.size() + " trending topics, " + started + " checked");
+    }
+
+    private void prewarm(ReportRepo.TrendingTopic candidate) {
+        try {
+            boolean called = reportGenerator.prewarmContent(candidate.getTopic(), candidate.getPageLimit());
+            if (called) {
+                meterRegistry.counter("formlix.prewarm.generations").increment();
+                System.out.println("🔥 Prewarmed: " + candidate.getTopic() + ", " + candidate.getPageLimit()
+                        + " pages (" + candidate.getRequests() + " recent requests)");
+            } else {
+                // ✅ Already cached: hand the call back to the budget
+                returnBudget();
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Prewarm failed for " + candidate.getTopic() + ": " + e.getMessage());
+        }
+    }
+
+    private boolean isIdle() {
+        return reportGenerator.getActiveGenerations() <= idleMaxLiveGenerations
+                && aiService.getCircuitState() == AICircuitBreaker.State.CLOSED;
+    }
+
+    private void backOff() {
+        backoffMillis = Math.min(maxBackoffMillis, Math.max(intervalMillis, backoffMillis * 2));
+        backoffUntil = System.currentTimeMillis() + backoffMillis;
+        meterRegistry.counter("formlix.prewarm.backoffs").increment();
+        System.out.println("⏸️ Prewarm backing off for " + backoffMillis / 1000 + " s (live traffic or AI unavailable)");
+    }
+
+    private synchronized boolean takeBudget() {
+        long now = System.currentTimeMillis();
+        while (!recentCalls.isEmpty() && now - recentCalls.peekFirst() >= HOUR_MILLIS) {
+            recentCalls.pollFirst();
+        }
+        if (recentCalls.size() >= maxCallsPerHour) return false;
+        recentCalls.addLast(now);
+        return true;
+    }
+
+    private synchronized void returnBudget() {
+        recentCalls.pollLast();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.ReportOutline;
+import lombok.RequiredArgsConstructor;
+import org.apache.poi.xwpf.usermodel.BreakType;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+
+import static com.example.formlix.service.DocxReportTemplate.*;
+
+/**
+ * Renders a parsed report as .docx on top of the shared {@link DocxReportTemplate}.
+ * <p>
+ * By default paragraphs are streamed straight into the zip via {@link DocxReportStreamWriter}.
+ * Setting {@code formlix.report.docx.streaming=false} switches back to building an
+ * in-memory {@link XWPFDocument}, which is handy when comparing output against POI.
+ */
+@Component
+@RequiredArgsConstructor
+public class WordReportRenderer {
+
+    private final DocxReportTemplate template;
+
+    @Value("${formlix.report.docx.streaming:true}")
+    private boolean streaming;
+
+    public void render(String topic, ReportOutline outline, OutputStream out) throws Exception {
+        ReportRenderSession session = open(topic, out);
+        for (ReportOutline.Section section : outline.sections()) {
+            session.addSection(section);
+        }
+        session.finish();
+    }
+
+    /**
+     * Starts a document whose sections are added as they become available.
+     */
+    public ReportRenderSession open(String topic, OutputStream out) throws Exception {
+        return streaming ? new StreamingSession(topic, out) : new PoiSession(topic, out);
+    }
+
+    private final class StreamingSession implements ReportRenderSession {
+
+        private final DocxReportStreamWriter writer;
+        private int sectionCount;
+
+        StreamingSession(String topic, OutputStream out) throws Exception {
+            writer = new DocxReportStreamWriter(out, template);
+            writer.paragraph(TITLE, topic.toUpperCase());
+        }
+
+        @Override
+        public void addSection(ReportOutline.Section section) throws Exception {
+            if (section.title() != null) {
+                sectionCount++;
+                if (section.startsOnNewPage()) {
+                    writer.pageBreak();
+                }
+                writer.paragraph(sectionCount == 1 ? HEADING_FIRST : HEADING, "● " + section.title());
+                if (sectionCount > 1) {
+                    writer.spacer();
+                }
+            }
+
+            for (ReportOutline.Block block : section.blocks()) {
+                switch (block.type()) {
+                    case BLANK -> {
+                    }
+                    case SUBSECTION -> writer.paragraph(SUBHEADING, "   ○ " + block.text());
+                    case REFERENCE -> writer.paragraph(REFERENCE, block.body());
+                    case PARAGRAPH -> writer.paragraph(section.isReferences() ? BODY_FLUSH : BODY, block.text());
+                }
+            }
+        }
+
+        @Override
+        public void finish() throws Exception {
+            writer.close();
+        }
+    }
+
+    private final class PoiSession implements ReportRenderSession {
+
+        private final XWPFDocument document;
+        private final OutputStream out;
+        private int sectionCount;
+
+        PoiSession(String topic, OutputStream out) throws Exception {
+            this.document = template.newDocument();
+            this.out = out;
+            addParagraph(document, TITLE, topic.toUpperCase());
+        }
+
+        @Override
+        public void addSection(ReportOutline.Section section) {
+            if (section.title() != null) {
+                sectionCount++;
+
+                // ✅ Page break only for Conclusion and References
+                if (section.startsOnNewPage()) {
+                    document.createParagraph().createRun().addBreak(BreakType.PAGE);
+                }
+
+                addParagraph(document, sectionCount == 1 ? HEADING_FIRST : HEADING, "● " + section.title());
+
+                // ✅ Add extra line before major sections for better separation
+                if (sectionCount > 1) {
+                    document.createParagraph();
+                }
+            }
+
+            for (ReportOutline.Block block : section.blocks()) {
+                switch (block.type()) {
+                    case BLANK -> {
+                    }
+                    case SUBSECTION -> addParagraph(document, SUBHEADING, "   ○ " + block.text());
+                    case REFERENCE -> addParagraph(document, REFERENCE, block.body());
+                    case PARAGRAPH -> addParagraph(document, section.isReferences() ? BODY_FLUSH : BODY, block.text());
+                }
+            }
+        }
+
+        @Override
+        public void finish() throws Exception {
+            try (document) {
+                document.write(out);
+            }
+        }
+    }
+
+    private static void addParagraph(XWPFDocument document, String styleId, String text) {
+        XWPFParagraph paragraph = document.createParagraph();
+        paragraph.setStyle(styleId);
+        paragraph.createRun().setText(text);
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.formlix.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportAdmissionFilterTest {
+
+    // ✅ A limit of one, so a request arriving while another is in the chain is over it
+    private final ReportAdmissionFilter filter = new ReportAdmissionFilter(new SimpleMeterRegistry(), true, 1, 1, 1);
+
+    @Test
+    void generateIsLeftToTheFairScheduler() throws Exception {
+        List<Integer> statuses = new ArrayList<>();
+
+        // ✅ A heavy user's request is in progress; a second user's still reaches the controller
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        FilterChain secondChain = (request, response) -> statuses.add(200);
+        FilterChain firstChain = (request, response) -> filter.doFilter(post("/api/reports/generate"), second, secondChain);
+        filter.doFilter(post("/api/reports/generate"), new MockHttpServletResponse(), firstChain);
+
+        assertEquals(List.of(200), statuses);
+        assertEquals(200, second.getStatus());
+    }
+
+    @Test
+    void generateFromTextOverTheLimitIsRejected() throws Exception {
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        FilterChain secondChain = (request, response) -> fail("second request should have been rejected");
+        FilterChain firstChain = (request, response) ->
+                filter.doFilter(post("/api/reports/generate-from-text"), second, secondChain);
+        filter.doFilter(post("/api/reports/generate-from-text"), new MockHttpServletResponse(), firstChain);
+
+        assertEquals(429, second.getStatus());
+        assertNotNull(second.getHeader("Retry-After"));
+    }
+
+    private static MockHttpServletRequest post(String path) {
+        return new MockHttpServletRequest("POST", path);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.formlix.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AICircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailuresOnly() {
+        AICircuitBreaker breaker = new AICircuitBreaker(3, 60_000);
+
+        failCall(breaker);
+        failCall(breaker);
+        succeedCall(breaker);
+        failCall(breaker);
+        failCall(breaker);
+        assertEquals(AICircuitBreaker.State.CLOSED, breaker.getState());
+
+        failCall(breaker);
+        assertEquals(AICircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.getRetryAfterMillis() > 0);
+    }
+
+    @Test
+    void halfOpenLetsOneProbeThroughAndClosesOnSuccess() throws InterruptedException {
+        AICircuitBreaker breaker = openBreaker(50);
+        Thread.sleep(80);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(AICircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // ✅ Only the probe; everyone else keeps getting the fallback
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(AICircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(0, breaker.getRetryAfterMillis());
+    }
+
+    @Test
+    void failedProbeReopensTheCircuit() throws InterruptedException {
+        AICircuitBreaker breaker = openBreaker(50);
+        Thread.sleep(80);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(AICircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    private static AICircuitBreaker openBreaker(long openMillis) {
+        AICircuitBreaker breaker = new AICircuitBreaker(2, openMillis);
+        failCall(breaker);
+        failCall(breaker);
+        assertEquals(AICircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static void failCall(AICircuitBreaker breaker) {
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+    }
+
+    private static void succeedCall(AICircuitBreaker breaker) {
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+    }
+}
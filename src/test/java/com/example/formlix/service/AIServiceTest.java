@@ -0,0 +1,108 @@
+package com.example.formlix.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AIServiceTest {
+
+    private static final String CHUNK = "data: {\"choices\":[{\"delta\":{\"content\":\"Hello \"}}]}\n\n";
+
+    private final MockWebServer server = new MockWebServer();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AIService aiService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server.start();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .readTimeout(500, TimeUnit.MILLISECONDS)
+                .build();
+        // ✅ Sections disabled, so the planner never needs the templates
+        TokenBudgetPlanner planner = new TokenBudgetPlanner(meterRegistry, null, 8192, 1_000_000, 0, false, 5);
+        // ✅ One failure opens the circuit, so its state shows how the call was counted
+        aiService = new AIService(client, meterRegistry, planner, 1, 0, 0, 1, 60_000);
+        ReflectionTestUtils.setField(aiService, "HF_API_KEY", "test-key");
+        ReflectionTestUtils.setField(aiService, "apiUrl", server.url("/v1/chat/completions").toString());
+        ReflectionTestUtils.setField(aiService, "streamUsage", false);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    void completeStreamIsASuccess() {
+        server.enqueue(sse(CHUNK + CHUNK + "data: [DONE]\n\n"));
+        List<String> deltas = new ArrayList<>();
+
+        assertTrue(aiService.generateContentStreaming("prompt", deltas::add));
+
+        assertEquals(List.of("Hello ", "Hello "), deltas);
+        assertEquals(AICircuitBreaker.State.CLOSED, aiService.getCircuitState());
+        assertEquals(1.0, requests("success"));
+    }
+
+    @Test
+    void streamCutOffMidwayIsAFailure() {
+        server.enqueue(sse(CHUNK + CHUNK + CHUNK + "data: [DONE]\n\n")
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+
+        assertFalse(aiService.generateContentStreaming("prompt", delta -> {
+        }));
+
+        assertEquals(AICircuitBreaker.State.OPEN, aiService.getCircuitState());
+        assertEquals(1.0, requests("failure"));
+        assertEquals(0.0, requests("success"));
+    }
+
+    @Test
+    void streamThatStallsAfterTheHeadersIsAFailure() {
+        // ✅ Headers straight away, then the body trickles slower than the read timeout
+        server.enqueue(sse(CHUNK + CHUNK + "data: [DONE]\n\n")
+                .throttleBody(16, 1, TimeUnit.SECONDS));
+
+        assertFalse(aiService.generateContentStreaming("prompt", delta -> {
+        }));
+
+        assertEquals(AICircuitBreaker.State.OPEN, aiService.getCircuitState());
+        assertEquals(1.0, requests("failure"));
+    }
+
+    @Test
+    void blockingCallWithATruncatedBodyIsAFailure() {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setBody("{\"choices\":[{\"message\":{\"content\":\"" + "x".repeat(4096) + "\"}}]}")
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+
+        assertTrue(aiService.generateContent("prompt").startsWith("Error"));
+
+        assertEquals(AICircuitBreaker.State.OPEN, aiService.getCircuitState());
+        assertEquals(1.0, requests("failure"));
+    }
+
+    private static MockResponse sse(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(body);
+    }
+
+    private double requests(String outcome) {
+        return meterRegistry.counter("formlix.ai.requests", "outcome", outcome).count();
+    }
+}
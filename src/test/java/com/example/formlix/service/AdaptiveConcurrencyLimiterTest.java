@@ -0,0 +1,100 @@
+package com.example.formlix.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void rejectsOnceTheLimitIsInFlight() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 10);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Permit second = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire());
+
+        first.release(false);
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    void releasingTwiceCountsOnce() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 10);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+
+        permit.release(false);
+        permit.release(false);
+
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void growsWhileFullyUsedAndLatencyStaysAtBaseline() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 1, 64);
+
+        for (int round = 0; round < 8; round++) {
+            runAtLimit(limiter, 10);
+        }
+
+        assertTrue(limiter.getLimit() > 4, "limit " + limiter.getLimit());
+        assertTrue(limiter.getLimit() <= 64);
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesWellAboveBaseline() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 16, 1, 64);
+        for (int round = 0; round < 2; round++) {
+            runAtLimit(limiter, 5);
+        }
+        int before = limiter.getLimit();
+
+        for (int round = 0; round < 6; round++) {
+            runAtLimit(limiter, 60);
+        }
+
+        assertTrue(limiter.getLimit() < before, before + " -> " + limiter.getLimit());
+    }
+
+    @Test
+    void quietPeriodsDoNotInflateTheLimit() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 8, 1, 64);
+
+        for (int i = 0; i < 20; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            Thread.sleep(1);
+            permit.release(false);
+        }
+
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void dropsBackOffMultiplicativelyDownToTheMinimum() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 20, 3, 64);
+
+        limiter.tryAcquire().release(true);
+        assertEquals(18, limiter.getLimit());
+
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire().release(true);
+        }
+        assertEquals(3, limiter.getLimit());
+    }
+
+    // ✅ Holds the whole limit for about holdMillis, so every sample sees a full limiter
+    private static void runAtLimit(AdaptiveConcurrencyLimiter limiter, long holdMillis) throws InterruptedException {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        AdaptiveConcurrencyLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire()) != null) {
+            permits.add(permit);
+        }
+        Thread.sleep(holdMillis);
+        permits.forEach(p -> p.release(false));
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.formlix.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FairReportSchedulerTest {
+
+    // ✅ Runs nothing until the test says so, so the order of dispatch is deterministic
+    private static final class ManualExecutor implements Executor {
+
+        private final Deque<Runnable> pending = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            pending.addLast(command);
+        }
+
+        boolean runNext() {
+            Runnable next = pending.pollFirst();
+            if (next == null) return false;
+            next.run();
+            return true;
+        }
+
+        void runAll() {
+            while (runNext()) {
+            }
+        }
+    }
+
+    private final ManualExecutor executor = new ManualExecutor();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> ran = new ArrayList<>();
+
+    @Test
+    void lightUserIsNotStuckBehindAHeavyOne() {
+        FairReportScheduler scheduler = scheduler(1, 5, 10);
+
+        for (int i = 1; i <= 4; i++) {
+            submit(scheduler, "user:heavy", 20, "H" + i);
+        }
+        submit(scheduler, "user:light", 5, "L1");
+        submit(scheduler, "user:light", 5, "L2");
+        executor.runAll();
+
+        // ✅ H1 was already running; after that the light user's pages are covered first
+        assertEquals(List.of("H1", "L1", "L2", "H2", "H3", "H4"), ran);
+    }
+
+    @Test
+    void equalCostQueuesAlternate() {
+        FairReportScheduler scheduler = scheduler(1, 5, 10);
+
+        submit(scheduler, "user:a", 5, "A1");
+        submit(scheduler, "user:a", 5, "A2");
+        submit(scheduler, "user:a", 5, "A3");
+        submit(scheduler, "user:b", 5, "B1");
+        submit(scheduler, "user:b", 5, "B2");
+        executor.runAll();
+
+        assertEquals(List.of("A1", "A2", "B1", "A3", "B2"), ran);
+    }
+
+    @Test
+    void rejectsBeyondThePerUserCap() {
+        FairReportScheduler scheduler = scheduler(1, 5, 2, 100);
+
+        submit(scheduler, "user:a", 5, "A1");
+        submit(scheduler, "user:a", 5, "A2");
+        submit(scheduler, "user:a", 5, "A3");
+        assertThrows(TaskRejectedException.class, () -> submit(scheduler, "user:a", 5, "A4"));
+
+        // ✅ Someone else is unaffected
+        submit(scheduler, "user:b", 5, "B1");
+        assertEquals(1.0, rejected("user-cap"));
+    }
+
+    @Test
+    void rejectsBeyondTheGlobalCap() {
+        FairReportScheduler scheduler = scheduler(1, 5, 5, 3);
+
+        submit(scheduler, "user:a", 5, "A1");
+        submit(scheduler, "user:a", 5, "A2");
+        submit(scheduler, "user:b", 5, "B1");
+        submit(scheduler, "ip:10.0.0.1", 5, "C1");
+        assertThrows(TaskRejectedException.class, () -> submit(scheduler, "user:d", 5, "D1"));
+        assertEquals(1.0, rejected("full"));
+
+        executor.runNext();
+        submit(scheduler, "user:d", 5, "D1");
+    }
+
+    @Test
+    void cancelledReportIsWithdrawnAndNeverRuns() {
+        FairReportScheduler scheduler = scheduler(1, 5, 1, 100);
+
+        submit(scheduler, "user:a", 5, "A1");
+        CompletableFuture<String> waiting = submit(scheduler, "user:a", 5, "A2");
+        assertThrows(TaskRejectedException.class, () -> submit(scheduler, "user:a", 5, "A3"));
+
+        waiting.cancel(false);
+        assertEquals(0.0, meterRegistry.get("formlix.report.queue.depth").gauge().value());
+        submit(scheduler, "user:a", 5, "A3");
+        executor.runAll();
+
+        assertEquals(List.of("A1", "A3"), ran);
+    }
+
+    @Test
+    void secondUserIsServedWhileAHeavyUserSaturatesTheWorkers() {
+        FairReportScheduler scheduler = scheduler(2, 5, 3);
+
+        // ✅ Both workers taken and the heavy user's queue full
+        for (int i = 1; i <= 5; i++) {
+            submit(scheduler, "user:heavy", 20, "H" + i);
+        }
+        assertThrows(TaskRejectedException.class, () -> submit(scheduler, "user:heavy", 20, "H6"));
+
+        CompletableFuture<String> light = submit(scheduler, "user:light", 5, "L1");
+        executor.runNext();
+
+        // ✅ The first worker to come free goes to the second user, not to the heavy user's backlog
+        assertEquals(List.of("H1"), ran);
+        executor.runNext();
+        executor.runNext();
+        assertEquals(List.of("H1", "H2", "L1"), ran);
+        assertEquals("L1", light.join());
+    }
+
+    @Test
+    void workersDefaultToTheJobPoolSize() {
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor() {
+            @Override
+            public void execute(Runnable task) {
+                executor.execute(task);
+            }
+        };
+        pool.setMaxPoolSize(3);
+        FairReportScheduler scheduler = new FairReportScheduler(pool, meterRegistry, 0, 5, 1.0, 5, 100);
+
+        for (int i = 1; i <= 5; i++) {
+            submit(scheduler, "user:" + i, 5, "R" + i);
+        }
+
+        assertEquals(3.0, meterRegistry.get("formlix.report.queue.running").gauge().value());
+        assertEquals(2.0, meterRegistry.get("formlix.report.queue.depth").gauge().value());
+    }
+
+    private FairReportScheduler scheduler(int workers, int quantum, int maxQueuedPerUser) {
+        return scheduler(workers, quantum, maxQueuedPerUser, 100);
+    }
+
+    private FairReportScheduler scheduler(int workers, int quantum, int maxQueuedPerUser, int maxQueued) {
+        return new FairReportScheduler(executor, meterRegistry, workers, quantum, 1.0, maxQueuedPerUser, maxQueued);
+    }
+
+    private CompletableFuture<String> submit(FairReportScheduler scheduler, String queueKey, int pages, String name) {
+        return scheduler.submit(queueKey, pages, () -> {
+            ran.add(name);
+            return name;
+        });
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.counter("formlix.report.queue.rejected", "reason", reason).count();
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.formlix.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalReportStoreTest {
+
+    private static final String FILE = "Report_Test_0123456789abcdef0123456789abcdef.pdf";
+
+    @TempDir
+    Path root;
+
+    private final List<Object> events = new ArrayList<>();
+
+    @Test
+    void uploadIsInvisibleUntilPublished() throws IOException {
+        LocalReportStore store = store(false);
+
+        try (ReportStore.Upload upload = store.create()) {
+            try (OutputStream out = upload.out()) {
+                out.write("report".getBytes(StandardCharsets.UTF_8));
+            }
+            assertThrows(NoSuchFileException.class, () -> store.stat(FILE));
+            assertEquals(1, temporaryFiles().size());
+
+            upload.publish(FILE);
+        }
+
+        assertEquals(6, store.stat(FILE).size());
+        assertEquals(root.resolve(ReportStore.shardOf(FILE)).resolve(FILE), store.localPath(FILE));
+        assertTrue(temporaryFiles().isEmpty());
+    }
+
+    @Test
+    void closingWithoutPublishingDiscardsTheBytes() throws IOException {
+        LocalReportStore store = store(false);
+
+        try (ReportStore.Upload upload = store.create()) {
+            upload.out().write(1);
+        }
+
+        assertTrue(temporaryFiles().isEmpty());
+        assertTrue(store.list().isEmpty());
+    }
+
+    @Test
+    void publishingAgainReplacesTheFileInOneStep() throws IOException {
+        LocalReportStore store = store(false);
+        publish(store, FILE, "first");
+
+        try (ReportStore.Upload upload = store.create()) {
+            try (OutputStream out = upload.out()) {
+                out.write("second".getBytes(StandardCharsets.UTF_8));
+            }
+            // ✅ Readers still see the old bytes until the rename
+            assertEquals("first", read(store.open(FILE, 0, 5)));
+            upload.publish(FILE);
+        }
+
+        assertEquals("second", read(store.open(FILE, 0, 6)));
+    }
+
+    @Test
+    void openReadsExactlyTheRange() throws IOException {
+        LocalReportStore store = store(false);
+        publish(store, FILE, "0123456789");
+
+        assertEquals("2345", read(store.open(FILE, 2, 4)));
+        assertEquals("89", read(store.open(FILE, 8, 10)));
+        assertThrows(IllegalArgumentException.class, () -> store.open(FILE, 0, 0));
+        assertThrows(NoSuchFileException.class, () -> store.open("Report_Missing.pdf", 0, 1));
+        assertThrows(NoSuchFileException.class, () -> store.open("../" + FILE, 0, 1));
+    }
+
+    @Test
+    void listFindsShardedReportsOnly() throws IOException {
+        LocalReportStore store = store(false);
+        publish(store, FILE, "a");
+        publish(store, "Report_Other.docx", "bb");
+        Files.writeString(root.resolve("Report_Flat.pdf"), "flat");
+        try (ReportStore.Upload upload = store.create()) {
+            upload.out().write(1);
+
+            List<String> names = store.list().stream().map(ReportStore.StoredReport::fileName).sorted().toList();
+            assertEquals(List.of("Report_Other.docx", FILE), names);
+        }
+    }
+
+    @Test
+    void deleteRemovesTheFileAndPublishesTheEvent() throws IOException {
+        LocalReportStore store = store(false);
+        publish(store, FILE, "report");
+
+        store.delete(FILE);
+
+        assertThrows(NoSuchFileException.class, () -> store.stat(FILE));
+        assertEquals(List.of(new ReportStore.Deleted(FILE)), events);
+    }
+
+    @Test
+    void startupRemovesOnlyStaleTemporaryFiles() throws IOException {
+        Path temp = Files.createDirectories(root.resolve(".tmp"));
+        Path stale = Files.writeString(temp.resolve("stale.part"), "x");
+        Files.setLastModifiedTime(stale, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+        Path fresh = Files.writeString(temp.resolve("fresh.part"), "x");
+
+        store(false);
+
+        assertFalse(Files.exists(stale));
+        assertTrue(Files.exists(fresh));
+    }
+
+    @Test
+    void unmigratedFlatReportsAreStillServedInPlace() throws IOException {
+        Path flat = Files.writeString(root.resolve(FILE), "0123456789");
+        Path part = Files.writeString(root.resolve("Report_Half.pdf.part"), "half");
+
+        LocalReportStore store = store(false);
+
+        assertTrue(Files.exists(flat));
+        assertTrue(Files.exists(part));
+        assertEquals(10, store.stat(FILE).size());
+        assertEquals("2345", read(store.open(FILE, 2, 4)));
+        assertEquals(flat, store.localPath(FILE));
+        assertThrows(NoSuchFileException.class, () -> store.stat("Report_Half.pdf.part"));
+    }
+
+    @Test
+    void shardedReportWinsOverAFlatOneOfTheSameName() throws IOException {
+        Files.writeString(root.resolve(FILE), "old");
+        LocalReportStore store = store(false);
+
+        publish(store, FILE, "new!");
+
+        assertEquals("new!", read(store.open(FILE, 0, 4)));
+        assertEquals(root.resolve(ReportStore.shardOf(FILE)).resolve(FILE), store.localPath(FILE));
+
+        store.delete(FILE);
+        assertThrows(NoSuchFileException.class, () -> store.stat(FILE));
+    }
+
+    @Test
+    void migrationMovesFlatReportsIntoShards() throws IOException {
+        Files.writeString(root.resolve(FILE), "flat");
+        Files.writeString(root.resolve("Report_Half.pdf.part"), "half");
+        Path hidden = Files.writeString(root.resolve(".gitkeep"), "");
+
+        LocalReportStore store = store(true);
+
+        assertFalse(Files.exists(root.resolve(FILE)));
+        assertFalse(Files.exists(root.resolve("Report_Half.pdf.part")));
+        assertTrue(Files.exists(hidden));
+        assertEquals("flat", read(store.open(FILE, 0, 4)));
+        assertEquals(List.of(FILE), store.list().stream().map(ReportStore.StoredReport::fileName).toList());
+    }
+
+    private LocalReportStore store(boolean migrateFlatLayout) throws IOException {
+        LocalReportStore store = new LocalReportStore(root.toString(), migrateFlatLayout, events::add);
+        store.prepare();
+        return store;
+    }
+
+    private static void publish(LocalReportStore store, String fileName, String content) throws IOException {
+        try (ReportStore.Upload upload = store.create()) {
+            try (OutputStream out = upload.out()) {
+                out.write(content.getBytes(StandardCharsets.UTF_8));
+            }
+            upload.publish(fileName);
+        }
+    }
+
+    private List<Path> temporaryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(root.resolve(".tmp"))) {
+            return files.toList();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
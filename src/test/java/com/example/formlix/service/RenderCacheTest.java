@@ -0,0 +1,91 @@
+package com.example.formlix.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderCacheTest {
+
+    @TempDir
+    Path root;
+
+    private LocalReportStore store;
+    private RenderCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new LocalReportStore(root.toString(), false, event -> {
+        });
+        store.prepare();
+        cache = new RenderCache(store, true);
+    }
+
+    @Test
+    void sameInputsGiveTheSameKeyAndName() {
+        String key = cache.keyFor("AI Ethics", "content", "PDF", 5);
+
+        assertEquals(key, cache.keyFor("AI Ethics", "content", "pdf", 5));
+        assertNotEquals(key, cache.keyFor("AI Ethics", "content", "pdf", 6));
+        assertNotEquals(key, cache.keyFor("AI Ethic", "scontent", "pdf", 5));
+        assertEquals("Report_AI_Ethics_" + key + ".pdf", cache.fileNameFor("AI Ethics", key, "pdf"));
+    }
+
+    @Test
+    void hitsOnceTheRenderedFileExists() throws IOException {
+        String key = cache.keyFor("Topic", "content", "docx", 5);
+        assertNull(cache.lookup("Topic", key, "docx"));
+
+        String fileName = cache.fileNameFor("Topic", key, "docx");
+        publish(fileName);
+
+        assertEquals(fileName, cache.lookup("Topic", key, "docx"));
+        assertNull(cache.lookup("Topic", key, "pdf"));
+    }
+
+    @Test
+    void missesOnceTheFileIsDeleted() throws IOException {
+        String key = cache.keyFor("Topic", "content", "pdf", 5);
+        String fileName = cache.fileNameFor("Topic", key, "pdf");
+        publish(fileName);
+        assertEquals(fileName, cache.lookup("Topic", key, "pdf"));
+
+        store.delete(fileName);
+
+        assertNull(cache.lookup("Topic", key, "pdf"));
+    }
+
+    // ✅ No index to rebuild or evict: whatever the store holds is a hit, e.g. after a restart
+    @Test
+    void findsFilesRenderedByAnotherInstance() throws IOException {
+        RenderCache other = new RenderCache(store, true);
+        String key = other.keyFor("Topic", "content", "pdf", 5);
+        publish(other.fileNameFor("Topic", key, "pdf"));
+
+        assertEquals(other.fileNameFor("Topic", key, "pdf"), cache.lookup("Topic", key, "pdf"));
+    }
+
+    @Test
+    void disabledCacheNeverHits() throws IOException {
+        RenderCache disabled = new RenderCache(store, false);
+        publish(cache.fileNameFor("Topic", cache.keyFor("Topic", "content", "pdf", 5), "pdf"));
+
+        String key = disabled.keyFor("Topic", "content", "pdf", 5);
+        assertNull(key);
+        assertNull(disabled.lookup("Topic", key, "pdf"));
+    }
+
+    private void publish(String fileName) throws IOException {
+        try (ReportStore.Upload upload = store.create()) {
+            try (OutputStream out = upload.out()) {
+                out.write(new byte[]{1, 2, 3});
+            }
+            upload.publish(fileName);
+        }
+    }
+}
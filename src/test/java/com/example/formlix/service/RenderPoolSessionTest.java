@@ -0,0 +1,143 @@
+package com.example.formlix.service;
+
+import com.example.formlix.model.ReportOutline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderPoolSessionTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(2, r -> new Thread(r, "render-test"));
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void sectionsRenderInOrderOnThePool() throws Exception {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        RenderPoolSession session = new RenderPoolSession(pool, () -> new RecordingSession(calls, null));
+
+        for (int i = 0; i < 50; i++) {
+            session.addSection(section("s" + i));
+        }
+        session.finish();
+
+        assertEquals(52, calls.size());
+        assertEquals("open@render-test", calls.get(0));
+        for (int i = 0; i < 50; i++) {
+            assertEquals("s" + i + "@render-test", calls.get(i + 1));
+        }
+        assertEquals("finish@render-test", calls.get(51));
+    }
+
+    @Test
+    void firstFailureSkipsTheRestAndIsRethrownByFinish() throws Exception {
+        List<String> calls = new CopyOnWriteArrayList<>();
+        RenderPoolSession session = new RenderPoolSession(pool, () -> new RecordingSession(calls, "s1"));
+
+        session.addSection(section("s0"));
+        session.addSection(section("s1"));
+        session.addSection(section("s2"));
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, session::finish);
+        assertEquals("s1", thrown.getMessage());
+        assertEquals(List.of("open@render-test", "s0@render-test"), calls);
+    }
+
+    @Test
+    void twoSessionsRenderSideBySide() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        RenderPoolSession.Opener opener = () -> new ReportRenderSession() {
+            @Override
+            public void addSection(ReportOutline.Section section) throws Exception {
+                bothStarted.countDown();
+                // ✅ Only returns if the other session's section is rendering at the same time
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            }
+
+            @Override
+            public void finish() {
+            }
+        };
+        RenderPoolSession docx = new RenderPoolSession(pool, opener);
+        RenderPoolSession pdf = new RenderPoolSession(pool, opener);
+
+        docx.addSection(section("s0"));
+        pdf.addSection(section("s0"));
+        docx.startFinish();
+        pdf.startFinish();
+        docx.finish();
+        pdf.finish();
+    }
+
+    @Test
+    void abandonWaitsForTheStepInProgressAndSkipsTheRest() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> calls = new CopyOnWriteArrayList<>();
+        RenderPoolSession session = new RenderPoolSession(pool, () -> new ReportRenderSession() {
+            @Override
+            public void addSection(ReportOutline.Section section) throws Exception {
+                rendering.countDown();
+                release.await();
+                calls.add(section.title());
+            }
+
+            @Override
+            public void finish() {
+                calls.add("finish");
+            }
+        });
+
+        session.addSection(section("s0"));
+        session.addSection(section("s1"));
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+
+        Thread abandoning = Thread.ofVirtual().start(() -> {
+            try {
+                session.abandon();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        abandoning.join(200);
+        assertTrue(abandoning.isAlive(), "abandon returned while a section was still rendering");
+
+        release.countDown();
+        abandoning.join(5000);
+        assertFalse(abandoning.isAlive());
+        assertEquals(List.of("s0"), calls);
+    }
+
+    private static ReportOutline.Section section(String title) {
+        return new ReportOutline.Section(title, ReportOutline.SectionKind.BODY, List.of());
+    }
+
+    private record RecordingSession(List<String> calls, String failOn) implements ReportRenderSession {
+
+        RecordingSession {
+            calls.add("open@" + Thread.currentThread().getName());
+        }
+
+        @Override
+        public void addSection(ReportOutline.Section section) {
+            if (section.title().equals(failOn)) throw new IllegalStateException(failOn);
+            calls.add(section.title() + "@" + Thread.currentThread().getName());
+        }
+
+        @Override
+        public void finish() {
+            calls.add("finish@" + Thread.currentThread().getName());
+        }
+    }
+}
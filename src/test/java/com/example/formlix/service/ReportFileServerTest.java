@@ -0,0 +1,287 @@
+package com.example.formlix.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportFileServerTest {
+
+    private static final String FILE = "Report_Test_0123456789abcdef0123456789abcdef.pdf";
+    private static final String CONTENT = "0123456789";
+
+    @TempDir
+    Path root;
+
+    private LocalReportStore store;
+    private final AtomicInteger opened = new AtomicInteger();
+    private ReportFileServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new LocalReportStore(root.toString(), false, event -> server.onDeleted((ReportStore.Deleted) event)) {
+            @Override
+            public InputStream open(String fileName, long offset, long length) throws IOException {
+                opened.incrementAndGet();
+                return super.open(fileName, offset, length);
+            }
+        };
+        store.prepare();
+        server = new ReportFileServer(store, new SimpleMeterRegistry(), 60_000, 100);
+        try (ReportStore.Upload upload = store.create()) {
+            try (OutputStream out = upload.out()) {
+                out.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+            }
+            upload.publish(FILE);
+        }
+    }
+
+    @Test
+    void servesTheWholeFileWithValidators() throws IOException {
+        MockHttpServletResponse response = get(request());
+
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertTrue(response.getHeader(HttpHeaders.ETAG).matches("\"[0-9a-f]+-a\""), response.getHeader(HttpHeaders.ETAG));
+        assertNotNull(response.getHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    void headSendsHeadersOnly() throws IOException {
+        MockHttpServletRequest request = request();
+        request.setMethod("HEAD");
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void answersASingleRangeWithPartialContent() throws IOException {
+        MockHttpServletResponse response = get(range("bytes=2-5"));
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getContentLengthLong());
+    }
+
+    @Test
+    void answersSuffixAndOpenEndedRanges() throws IOException {
+        MockHttpServletResponse suffix = get(range("bytes=-3"));
+        assertEquals(206, suffix.getStatus());
+        assertEquals("789", suffix.getContentAsString());
+        assertEquals("bytes 7-9/10", suffix.getHeader(HttpHeaders.CONTENT_RANGE));
+
+        MockHttpServletResponse longSuffix = get(range("bytes=-50"));
+        assertEquals(CONTENT, longSuffix.getContentAsString());
+        assertEquals("bytes 0-9/10", longSuffix.getHeader(HttpHeaders.CONTENT_RANGE));
+
+        MockHttpServletResponse openEnded = get(range("bytes=7-"));
+        assertEquals("789", openEnded.getContentAsString());
+
+        MockHttpServletResponse pastEnd = get(range("bytes=8-100"));
+        assertEquals("89", pastEnd.getContentAsString());
+        assertEquals("bytes 8-9/10", pastEnd.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void refusesARangeStartingPastTheEnd() throws IOException {
+        MockHttpServletResponse response = get(range("bytes=10-20"));
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+
+        assertEquals(416, get(range("bytes=-0")).getStatus());
+    }
+
+    @Test
+    void sendsTheWholeFileForSeveralOrInvalidRanges() throws IOException {
+        for (String header : new String[]{"bytes=0-1,4-5", "bytes=5-2", "bytes=a-b", "items=0-1", "bytes=3"}) {
+            MockHttpServletResponse response = get(range(header));
+            assertEquals(200, response.getStatus(), header);
+            assertEquals(CONTENT, response.getContentAsString(), header);
+            assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE), header);
+        }
+    }
+
+    @Test
+    void ifRangeWithTheCurrentValidatorKeepsTheRange() throws IOException {
+        MockHttpServletResponse first = get(request());
+
+        MockHttpServletRequest byEtag = range("bytes=0-1");
+        byEtag.addHeader(HttpHeaders.IF_RANGE, first.getHeader(HttpHeaders.ETAG));
+        assertEquals(206, get(byEtag).getStatus());
+
+        MockHttpServletRequest byDate = range("bytes=0-1");
+        byDate.addHeader(HttpHeaders.IF_RANGE, first.getHeader(HttpHeaders.LAST_MODIFIED));
+        assertEquals(206, get(byDate).getStatus());
+    }
+
+    @Test
+    void ifRangeWithAnOldValidatorSendsTheWholeFile() throws IOException {
+        MockHttpServletRequest byEtag = range("bytes=0-1");
+        byEtag.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+        MockHttpServletResponse response = get(byEtag);
+        assertEquals(200, response.getStatus());
+        assertEquals(CONTENT, response.getContentAsString());
+
+        // ✅ Weak tags never match If-Range
+        MockHttpServletRequest weak = range("bytes=0-1");
+        weak.addHeader(HttpHeaders.IF_RANGE, "W/" + get(request()).getHeader(HttpHeaders.ETAG));
+        assertEquals(200, get(weak).getStatus());
+
+        MockHttpServletRequest byDate = range("bytes=0-1");
+        byDate.addHeader(HttpHeaders.IF_RANGE, "Thu, 01 Jan 2015 00:00:00 GMT");
+        assertEquals(200, get(byDate).getStatus());
+    }
+
+    @Test
+    void ifNoneMatchRevalidatesStrongWeakAndListedTags() throws IOException {
+        String etag = get(request()).getHeader(HttpHeaders.ETAG);
+
+        for (String header : new String[]{etag, "W/" + etag, "\"other\", " + etag, "*"}) {
+            MockHttpServletRequest request = request();
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, header);
+            MockHttpServletResponse response = get(request);
+            assertEquals(304, response.getStatus(), header);
+            assertEquals(etag, response.getHeader(HttpHeaders.ETAG), header);
+            assertEquals(0, response.getContentAsByteArray().length, header);
+        }
+
+        MockHttpServletRequest other = request();
+        other.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        assertEquals(200, get(other).getStatus());
+    }
+
+    @Test
+    void ifNoneMatchWinsOverIfModifiedSince() throws IOException {
+        MockHttpServletResponse first = get(request());
+
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, first.getHeader(HttpHeaders.LAST_MODIFIED));
+
+        assertEquals(200, get(request).getStatus());
+    }
+
+    @Test
+    void ifModifiedSinceRevalidatesByDate() throws IOException {
+        MockHttpServletResponse first = get(request());
+
+        MockHttpServletRequest unchanged = request();
+        unchanged.addHeader(HttpHeaders.IF_MODIFIED_SINCE, first.getHeader(HttpHeaders.LAST_MODIFIED));
+        assertEquals(304, get(unchanged).getStatus());
+
+        MockHttpServletRequest older = request();
+        older.addHeader(HttpHeaders.IF_MODIFIED_SINCE, "Thu, 01 Jan 2015 00:00:00 GMT");
+        assertEquals(200, get(older).getStatus());
+    }
+
+    @Test
+    void unknownAndInvalidNamesAreNotFound() throws IOException {
+        assertEquals(404, serve("Report_Missing.pdf", request()).getStatus());
+        assertEquals(404, serve("../" + FILE, request()).getStatus());
+        assertEquals(404, serve(".tmp", request()).getStatus());
+    }
+
+    @Test
+    void replacedReportGetsANewEtag() throws IOException {
+        String etag = get(request()).getHeader(HttpHeaders.ETAG);
+
+        try (ReportStore.Upload upload = store.create()) {
+            try (OutputStream out = upload.out()) {
+                out.write("replaced".getBytes(StandardCharsets.UTF_8));
+            }
+            upload.publish(FILE);
+        }
+        Files.setLastModifiedTime(store.localPath(FILE), FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+
+        MockHttpServletRequest request = range("bytes=0-1");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+        MockHttpServletResponse response = get(request);
+        assertEquals(200, response.getStatus());
+        assertEquals("replaced", response.getContentAsString());
+        assertNotEquals(etag, response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void validatorsNeverReadTheFile() throws IOException {
+        MockHttpServletRequest request = request();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        String etag = get(request).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest revalidation = request();
+        revalidation.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        assertEquals(304, get(revalidation).getStatus());
+
+        assertEquals(0, opened.get());
+    }
+
+    @Test
+    void deletedReportIsNotRevalidatedFromMemory() throws IOException {
+        String etag = get(request()).getHeader(HttpHeaders.ETAG);
+
+        store.delete(FILE);
+
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        assertEquals(404, get(request).getStatus());
+    }
+
+    @Test
+    void handsLocalFilesToSendfileWhenTheConnectorSupportsIt() throws IOException {
+        MockHttpServletRequest request = range("bytes=2-5");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+        MockHttpServletResponse response = get(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(store.localPath(FILE).toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(6L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/reports/download/" + FILE);
+    }
+
+    private static MockHttpServletRequest range(String header) {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, header);
+        return request;
+    }
+
+    private MockHttpServletResponse get(MockHttpServletRequest request) throws IOException {
+        return serve(FILE, request);
+    }
+
+    private MockHttpServletResponse serve(String fileName, MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        server.serve(fileName, "application/pdf", request, response);
+        if (response.getStatus() == HttpServletResponse.SC_OK || response.getStatus() == 206) {
+            assertEquals("application/pdf", response.getContentType());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.formlix.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SectionParallelGeneratorTest {
+
+    private static final Pattern SECTION = Pattern.compile("Write ONLY the '([^']+)' section");
+
+    private static final ReportTemplates TEMPLATES = templates();
+    private static final List<ReportTemplates.Section> SECTIONS = TEMPLATES.sections();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+    private final AIService aiService = mock(AIService.class);
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void stitchesSectionsInReportOrderWhateverOrderTheyFinishIn() throws InterruptedException {
+        // ✅ Earlier sections answer slower, so they complete last
+        answerWith(title -> {
+            int index = indexOf(title);
+            sleep(10L * (SECTIONS.size() - index));
+            return "## " + title + "\n\nBody of " + title + ".";
+        });
+
+        String report = new SectionParallelGenerator(aiService, TEMPLATES, executor, 7).generate("Topic", 5, null);
+
+        assertNotNull(report);
+        int previous = -1;
+        for (ReportTemplates.Section spec : SECTIONS) {
+            int at = report.indexOf("## " + spec.title() + "\n\nBody of " + spec.title() + ".");
+            assertTrue(at > previous, spec.title() + " out of order");
+            previous = at;
+        }
+        assertEquals(SECTIONS.size(), calls.get());
+    }
+
+    @Test
+    void neverRunsMoreThanParallelismSectionsAtOnce() throws InterruptedException {
+        answerWith(title -> {
+            sleep(20);
+            return "## " + title + "\n\nText.";
+        });
+
+        assertNotNull(new SectionParallelGenerator(aiService, TEMPLATES, executor, 2).generate("Topic", 5, null));
+
+        assertEquals(2, maxInFlight.get());
+    }
+
+    @Test
+    void firstFailedSectionStopsTheRest() throws InterruptedException {
+        answerWith(title -> title.equals("Introduction") ? "Error: upstream down" : "## " + title + "\n\nText.");
+
+        assertNull(new SectionParallelGenerator(aiService, TEMPLATES, executor, 1).generate("Topic", 5, null));
+
+        // ✅ One at a time, so nothing after the failed introduction reached the AI
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void failedSectionFailsTheReportWhileOthersAreInFlight() throws InterruptedException {
+        answerWith(title -> {
+            if (title.equals("Aim and Objectives")) throw new IllegalStateException("boom");
+            sleep(20);
+            return "## " + title + "\n\nText.";
+        });
+
+        assertNull(new SectionParallelGenerator(aiService, TEMPLATES, executor, 3).generate("Topic", 5, null));
+
+        assertTrue(calls.get() < SECTIONS.size(), calls.get() + " calls");
+    }
+
+    @Test
+    void extractSectionAddsTheHeadingWhenMissing() {
+        assertEquals("## Methodology\n\nWe did things.",
+                SectionParallelGenerator.extractSection("We did things.", "Methodology"));
+    }
+
+    @Test
+    void extractSectionReplacesARenamedHeading() {
+        assertEquals("## Methodology\n\n### Design\nText.",
+                SectionParallelGenerator.extractSection("## Methods Used\n\n### Design\nText.", "Methodology"));
+    }
+
+    @Test
+    void extractSectionDropsWhatFollowsTheNextMainHeading() {
+        String cleaned = "## Introduction\n\nIntro text.\n\n### Scope\nScope text.\n\n## Literature Review\n\nMore.";
+
+        assertEquals("## Introduction\n\nIntro text.\n\n### Scope\nScope text.",
+                SectionParallelGenerator.extractSection(cleaned, "Introduction"));
+    }
+
+    @Test
+    void extractSectionSkipsTextBeforeItsHeading() {
+        assertEquals("## Conclusion\n\nDone.",
+                SectionParallelGenerator.extractSection("Preamble\n\n## Conclusion\n\nDone.", "Conclusion"));
+    }
+
+    @Test
+    void extractSectionOfAHeadingAloneIsEmpty() {
+        assertEquals("", SectionParallelGenerator.extractSection("## Conclusion\n\n", "Conclusion"));
+    }
+
+    @Test
+    void budgetsFollowParagraphWeights() {
+        ReportTemplates.Section results = SECTIONS.get(4);
+        ReportTemplates.Section references = SECTIONS.get(6);
+
+        assertTrue(SectionParallelGenerator.targetCharacters(SECTIONS, results, 20)
+                > SectionParallelGenerator.targetCharacters(SECTIONS, SECTIONS.get(0), 20));
+        assertEquals(0, SectionParallelGenerator.targetCharacters(SECTIONS, references, 20));
+        assertEquals(1500, SectionParallelGenerator.maxTokens(SECTIONS, references, 20));
+    }
+
+    @Test
+    void sectionsFollowTheReportPromptsOutline() {
+        assertEquals(List.of("Introduction", "Literature Review", "Aim and Objectives", "Methodology",
+                        "Results and Discussion", "Conclusion", "References"),
+                SECTIONS.stream().map(ReportTemplates.Section::title).toList());
+        // ✅ Paragraphs asked for per section; "6-8" counts as 7, the reference list as none
+        assertEquals(List.of(10, 17, 10, 22, 23, 7, 0),
+                SECTIONS.stream().map(ReportTemplates.Section::paragraphs).toList());
+    }
+
+    @Test
+    void sectionPromptCarriesItsPartOfTheOutline() {
+        String methodology = TEMPLATES.sectionPrompt(SECTIONS.get(3), "Solar Power", 10, 4321);
+
+        assertTrue(methodology.contains("research report on: Solar Power"));
+        assertTrue(methodology.contains("Write ONLY the 'Methodology' section."));
+        assertTrue(methodology.contains("- Generate approximately 4321 characters"));
+        assertTrue(methodology.endsWith("## Methodology\n### Research Design\n(Write 5 paragraphs)\n\n"
+                + "### Data Collection Methods\n(Write 5 paragraphs)\n\n### Sampling Strategy\n(Write 4 paragraphs)\n\n"
+                + "### Data Analysis Techniques\n(Write 5 paragraphs)\n\n### Ethical Considerations\n(Write 3 paragraphs)"),
+                methodology);
+
+        String references = TEMPLATES.sectionPrompt(SECTIONS.get(6), "Solar Power", 10, 0);
+        assertFalse(references.contains("Generate approximately"));
+        assertFalse(references.contains("@paragraphs"));
+        // ✅ The closing reminder of the single-call prompt is not part of the last section
+        assertTrue(references.endsWith("## References\n1. Author, A. (Year). Title. Journal/Publisher.\n"
+                + "(List 15-20 formatted references)"), references);
+    }
+
+    private interface Answer {
+        String answer(String title);
+    }
+
+    private void answerWith(Answer answer) {
+        when(aiService.generateContent(anyString(), anyInt(), any())).thenAnswer(invocation -> {
+            Matcher matcher = SECTION.matcher(invocation.getArgument(0, String.class));
+            assertTrue(matcher.find());
+            calls.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                return answer.answer(matcher.group(1));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private static int indexOf(String title) {
+        List<ReportTemplates.Section> sections = SECTIONS;
+        for (int i = 0; i < sections.size(); i++) {
+            if (sections.get(i).title().equals(title)) return i;
+        }
+        throw new IllegalArgumentException(title);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ReportTemplates templates() {
+        ReportTemplates templates = new ReportTemplates(new DefaultResourceLoader(), "classpath:templates/", 0);
+        try {
+            templates.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return templates;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.formlix.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void followersShareTheLeadersValue() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>("test");
+        AtomicInteger calls = new AtomicInteger();
+
+        SingleFlight.Flight<String> leader = flight.begin("key");
+        assertTrue(leader.isLeader());
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                // ✅ Joined here, so every follower is attached before the leader finishes
+                SingleFlight.Flight<String> follower = flight.begin("key");
+                assertFalse(follower.isLeader());
+                results.add(pool.submit(() -> follower.await(() -> "own-" + calls.incrementAndGet())));
+            }
+            leader.complete("shared");
+
+            for (Future<String> result : results) {
+                assertEquals("shared", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(0, calls.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void followersRunTheCallThemselvesWhenTheLeaderFails() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>("test");
+        AtomicInteger calls = new AtomicInteger();
+
+        SingleFlight.Flight<String> leader = flight.begin("key");
+        SingleFlight.Flight<String> follower = flight.begin("key");
+        assertFalse(follower.isLeader());
+
+        leader.fail(new IllegalStateException("leader only"));
+
+        assertEquals("retried", follower.await(() -> {
+            calls.incrementAndGet();
+            return "retried";
+        }));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void nothingIsRememberedOnceTheLeaderIsDone() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>("test");
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals("1", flight.run("key", () -> String.valueOf(calls.incrementAndGet())));
+        assertEquals("2", flight.run("key", () -> String.valueOf(calls.incrementAndGet())));
+
+        assertThrows(IllegalStateException.class, () -> flight.run("key", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertTrue(flight.begin("key").isLeader());
+    }
+
+    @Test
+    void differentKeysDoNotCoalesce() {
+        SingleFlight<String> flight = new SingleFlight<>("test");
+
+        assertTrue(flight.begin("a").isLeader());
+        assertTrue(flight.begin("b").isLeader());
+        assertFalse(flight.begin("a").isLeader());
+    }
+}
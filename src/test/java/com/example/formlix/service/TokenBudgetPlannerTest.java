@@ -0,0 +1,77 @@
+package com.example.formlix.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBudgetPlannerTest {
+
+    private static final long TOKENS_PER_MINUTE = 100_000;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenBudgetPlanner planner = new TokenBudgetPlanner(meterRegistry, templates(), 8192, TOKENS_PER_MINUTE, 0, false, 5);
+
+    @Test
+    void usageUnderAGrantIsNotCountedTwice() {
+        TokenBudgetPlanner.Grant grant = planner.tryAcquire(1);
+        int reserved = grant.plan().reservedTokens();
+        assertEquals(TOKENS_PER_MINUTE - reserved, available());
+
+        grant.recordUsage(1000);
+        assertEquals(TOKENS_PER_MINUTE - reserved, available());
+
+        grant.close();
+        assertEquals(TOKENS_PER_MINUTE - 1000, available());
+    }
+
+    @Test
+    void usageBeyondTheReservationIsChargedOnTop() {
+        TokenBudgetPlanner.Grant grant = planner.tryAcquire(1);
+        int reserved = grant.plan().reservedTokens();
+
+        grant.recordUsage(reserved + 500);
+        assertEquals(TOKENS_PER_MINUTE - reserved - 500, available());
+
+        grant.close();
+        assertEquals(TOKENS_PER_MINUTE - reserved - 500, available());
+    }
+
+    @Test
+    void closingTwiceReleasesOnce() {
+        TokenBudgetPlanner.Grant first = planner.tryAcquire(1);
+        TokenBudgetPlanner.Grant second = planner.tryAcquire(1);
+        int reserved = second.plan().reservedTokens();
+
+        first.close();
+        first.close();
+
+        assertEquals(TOKENS_PER_MINUTE - reserved, available());
+    }
+
+    @Test
+    void usageWithoutAGrantCountsInFull() {
+        planner.recordUsage(2000);
+
+        assertEquals(TOKENS_PER_MINUTE - 2000, available());
+    }
+
+    private long available() {
+        return (long) meterRegistry.get("formlix.ai.budget.available").gauge().value();
+    }
+
+    private static ReportTemplates templates() {
+        ReportTemplates templates = new ReportTemplates(new DefaultResourceLoader(), "classpath:templates/", 0);
+        try {
+            templates.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return templates;
+    }
+}